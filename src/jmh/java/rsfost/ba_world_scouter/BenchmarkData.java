@@ -0,0 +1,100 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.Gson;
+import net.runelite.http.api.worlds.WorldRegion;
+import okio.Buffer;
+import okio.ByteString;
+
+import java.util.Random;
+
+/**
+ * Deterministic fixtures shared by the benchmarks.
+ */
+final class BenchmarkData
+{
+    static final int WORLDS = 300;
+    static final int FIRST_WORLD = 301;
+
+    private static final long SEED = 0x42415753L;
+    private static final WorldRegion[] REGIONS = WorldRegion.values();
+
+    private BenchmarkData()
+    {
+    }
+
+    static InstanceInfo[] instanceInfos()
+    {
+        return instanceInfos(WORLDS);
+    }
+
+    /**
+     * {@code count} infos. World ids repeat past {@link #WORLDS}, as they would across
+     * several responses.
+     */
+    static InstanceInfo[] instanceInfos(int count)
+    {
+        final Random random = new Random(SEED);
+        final long now = System.currentTimeMillis() / 1000;
+        final InstanceInfo[] infos = new InstanceInfo[count];
+        for (int i = 0; i < count; ++i)
+        {
+            final long confirmedTime = now - random.nextInt(3600);
+            final int confirmedY = 4800 + random.nextInt(1000);
+            final long predictedTime = confirmedTime + random.nextInt(600);
+            final int predictedY = confirmedY + random.nextInt(50);
+            infos[i] = new InstanceInfo(FIRST_WORLD + i % WORLDS,
+                new InstanceInfo.Coord(confirmedTime, confirmedY),
+                new InstanceInfo.Coord(predictedTime, predictedY),
+                confirmedTime);
+        }
+        return infos;
+    }
+
+    /**
+     * The infos as the world stream sends them, one event each.
+     */
+    static ByteString eventStream(Gson gson, InstanceInfo[] infos)
+    {
+        final Buffer buffer = new Buffer();
+        for (int i = 0; i < infos.length; ++i)
+        {
+            buffer.writeUtf8("id: ").writeDecimalLong(i)
+                .writeUtf8("\ndata: ").writeUtf8(gson.toJson(infos[i]))
+                .writeUtf8("\n\n");
+        }
+        return buffer.readByteString();
+    }
+
+    static WorldStateStore store(InstanceInfo[] infos)
+    {
+        final Random random = new Random(SEED);
+        final WorldStateStore store = new WorldStateStore();
+        for (InstanceInfo info : infos)
+        {
+            store.update(info);
+            store.setWorldDetails(info.getWorldId(), random.nextInt(2000), REGIONS[random.nextInt(REGIONS.length)]);
+        }
+        return store;
+    }
+
+    static WorldHistory history(InstanceInfo[] infos)
+    {
+        final WorldHistory history = new WorldHistory();
+        for (InstanceInfo info : infos)
+        {
+            history.record(info.getWorldId(), info.getConfirmed().getY(), info.getConfirmed().getTime(),
+                info.getPrediction().getY(), info.getPrediction().getTime());
+        }
+        return history;
+    }
+
+    /**
+     * A config with every option at its default.
+     */
+    static BaWorldScouterConfig config()
+    {
+        return new BaWorldScouterConfig()
+        {
+        };
+    }
+}
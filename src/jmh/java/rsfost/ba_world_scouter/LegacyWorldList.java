@@ -0,0 +1,206 @@
+package rsfost.ba_world_scouter;
+
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.FontManager;
+import net.runelite.client.ui.PluginPanel;
+import net.runelite.client.util.ImageUtil;
+import net.runelite.http.api.worlds.WorldRegion;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The world list as it was before {@link WorldListView}: one panel per world, each with its
+ * own nested panels, labels and borders, all re-added to a grid and laid out again on every
+ * refresh. Kept only so the benchmarks can compare the two. It reads the same
+ * {@link WorldStateStore.WorldState} rows, since the instance info it used to hold no longer
+ * carries the world's details.
+ */
+class LegacyWorldList
+{
+    private static final Color ODD_ROW = new Color(44, 44, 44);
+    private static final ImageIcon FLAG_AUS;
+    private static final ImageIcon FLAG_UK;
+    private static final ImageIcon FLAG_US;
+    private static final ImageIcon FLAG_US_EAST;
+    private static final ImageIcon FLAG_US_WEST;
+    private static final ImageIcon FLAG_GER;
+
+    static
+    {
+        FLAG_AUS = new ImageIcon(ImageUtil.loadImageResource(BaWorldScouterPlugin.class, "flag_aus.png"));
+        FLAG_UK = new ImageIcon(ImageUtil.loadImageResource(BaWorldScouterPlugin.class, "flag_uk.png"));
+        FLAG_US = new ImageIcon(ImageUtil.loadImageResource(BaWorldScouterPlugin.class, "flag_us.png"));
+        FLAG_US_EAST = new ImageIcon(ImageUtil.loadImageResource(BaWorldScouterPlugin.class, "flag_us_east.png"));
+        FLAG_US_WEST = new ImageIcon(ImageUtil.loadImageResource(BaWorldScouterPlugin.class, "flag_us_west.png"));
+        FLAG_GER = new ImageIcon(ImageUtil.loadImageResource(BaWorldScouterPlugin.class, "flag_ger.png"));
+    }
+
+    private final BaWorldScouterConfig config;
+    private final JPanel listContainer = new JPanel(new GridLayout(0, 1));
+    private final List<Row> rows = new ArrayList<>();
+
+    LegacyWorldList(BaWorldScouterConfig config)
+    {
+        this.config = config;
+    }
+
+    JPanel getComponent()
+    {
+        return listContainer;
+    }
+
+    /**
+     * Replaces every row with a new one, as a full sync used to, then sorts and lays out the
+     * list.
+     */
+    void populate(List<WorldStateStore.WorldState> worlds)
+    {
+        rows.clear();
+        for (WorldStateStore.WorldState world : worlds)
+        {
+            rows.add(new Row(world));
+        }
+        updateList();
+    }
+
+    void updateList()
+    {
+        listContainer.removeAll();
+        rows.sort(Comparator.comparingInt(row -> row.state.getWorldId()));
+        for (int i = 0; i < rows.size(); ++i)
+        {
+            final Row row = rows.get(i);
+            row.setBackground(i % 2 == 0 ? ODD_ROW : ColorScheme.DARK_GRAY_COLOR);
+            listContainer.add(row);
+        }
+
+        // The panel revalidated here and the layout ran later on the EDT; it is run directly
+        // so that it is counted
+        listContainer.setSize(PluginPanel.PANEL_WIDTH, listContainer.getPreferredSize().height);
+        listContainer.validate();
+        listContainer.repaint();
+    }
+
+    private class Row extends JPanel
+    {
+        private final WorldStateStore.WorldState state;
+
+        Row(WorldStateStore.WorldState state)
+        {
+            this.state = state;
+            setLayout(new BorderLayout());
+            setBorder(new EmptyBorder(2, 0, 2, 0));
+
+            final JPanel leftSide = new JPanel(new BorderLayout());
+            final JPanel rightSide = new JPanel(new BorderLayout());
+            leftSide.setOpaque(false);
+            rightSide.setOpaque(false);
+
+            final JPanel worldField = column(new BorderLayout(7, 0), 60);
+            final ImageIcon flag = getFlag(state.getRegion(), state.getLocation());
+            if (flag != null)
+            {
+                worldField.add(new JLabel(flag), BorderLayout.WEST);
+            }
+            worldField.add(new JLabel(Integer.toString(state.getWorldId())), BorderLayout.CENTER);
+
+            final JPanel yField = column(new BorderLayout(), 40);
+            yField.add(smallLabel(new JLabel()
+            {
+                @Override
+                public String getText()
+                {
+                    return formatInt(state.getY(config.showPredictedValues()));
+                }
+            }), BorderLayout.EAST);
+
+            final JPanel popField = column(new BorderLayout(), 45);
+            popField.add(smallLabel(new JLabel(state.getPopulation() == WorldStateStore.UNKNOWN
+                ? "?" : Integer.toString(state.getPopulation()))), BorderLayout.EAST);
+
+            final JPanel lastUpdatedField = column(new BorderLayout(), 70);
+            lastUpdatedField.add(smallLabel(new JLabel()
+            {
+                @Override
+                public String getText()
+                {
+                    return formatTime(state.getConfirmedTime());
+                }
+            }), BorderLayout.EAST);
+
+            leftSide.add(worldField, BorderLayout.WEST);
+            leftSide.add(yField, BorderLayout.CENTER);
+            leftSide.add(popField, BorderLayout.EAST);
+            rightSide.add(lastUpdatedField, BorderLayout.EAST);
+            add(leftSide, BorderLayout.WEST);
+            add(rightSide, BorderLayout.CENTER);
+        }
+    }
+
+    private static JPanel column(LayoutManager layout, int width)
+    {
+        final JPanel column = new JPanel(layout);
+        column.setBorder(new EmptyBorder(0, 5, 0, 5));
+        column.setPreferredSize(new Dimension(width, 20));
+        column.setOpaque(false);
+        return column;
+    }
+
+    private static JLabel smallLabel(JLabel label)
+    {
+        label.setFont(FontManager.getRunescapeSmallFont());
+        return label;
+    }
+
+    private static ImageIcon getFlag(WorldRegion region, int location)
+    {
+        final WorldTableRow.Flag flag = WorldTableRow.getFlagRegion(region, location);
+        if (flag == null)
+        {
+            return null;
+        }
+        switch (flag)
+        {
+            case US_WEST:
+                return FLAG_US_WEST;
+            case US_EAST:
+                return FLAG_US_EAST;
+            case US:
+                return FLAG_US;
+            case UK:
+                return FLAG_UK;
+            case AUSTRALIA:
+                return FLAG_AUS;
+            case GERMANY:
+                return FLAG_GER;
+            default:
+                return null;
+        }
+    }
+
+    private static String formatTime(long time)
+    {
+        final long minutes = Duration.between(Instant.ofEpochSecond(time), Instant.now()).toMinutes();
+        if (minutes == 0)
+        {
+            return "Just now";
+        }
+        else if (minutes == 1)
+        {
+            return "1 min ago";
+        }
+        return String.format("%d mins ago", minutes);
+    }
+
+    private static String formatInt(int a)
+    {
+        return String.format("%d.%dk", a / 1000, (a % 1000) / 100);
+    }
+}
@@ -0,0 +1,86 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and loading a snapshot of {@link BenchmarkData#WORLDS} worlds with the memory-mapped
+ * {@link WorldStateFile} against a JSON file written with Gson.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark
+{
+    private final Gson gson = new Gson();
+    private InstanceInfo[] infos;
+    private File mappedFile;
+    private File jsonFile;
+    private WorldStateFile stateFile;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        infos = BenchmarkData.instanceInfos();
+        mappedFile = File.createTempFile("worlds", ".bin");
+        jsonFile = File.createTempFile("worlds", ".json");
+        stateFile = new WorldStateFile(mappedFile);
+        mappedWrite();
+        jsonWrite();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        mappedFile.delete();
+        jsonFile.delete();
+    }
+
+    @Benchmark
+    public void mappedWrite() throws IOException
+    {
+        for (InstanceInfo info : infos)
+        {
+            stateFile.write(info.getWorldId(), info.getConfirmed().getY(), info.getConfirmed().getTime(),
+                info.getPrediction().getY(), info.getPrediction().getTime());
+        }
+    }
+
+    @Benchmark
+    public Object mappedRead() throws IOException
+    {
+        return stateFile.readAll();
+    }
+
+    @Benchmark
+    public void jsonWrite() throws IOException
+    {
+        Files.write(jsonFile.toPath(), gson.toJson(infos).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Object jsonRead() throws IOException
+    {
+        return gson.fromJson(new String(Files.readAllBytes(jsonFile.toPath()), StandardCharsets.UTF_8),
+            InstanceInfo[].class);
+    }
+}
@@ -0,0 +1,117 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.Gson;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a world stream of {@link BenchmarkData#WORLDS} events, as
+ * {@code InstanceInfoService.processSseStream} does, against decoding each event with Gson,
+ * and against the original line-by-line loop that framed and decoded events with strings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseParseBenchmark
+{
+    private final Gson gson = new Gson();
+    private final WorldUpdateParser parser = new WorldUpdateParser();
+    private ByteString stream;
+    private long checksum;
+
+    private final SseReader.Listener parserListener = new SseReader.Listener()
+    {
+        @Override
+        public void onEvent(String type, Buffer data) throws IOException
+        {
+            if (parser.parse(data))
+            {
+                checksum += parser.getWorldId() + parser.getConfirmedY() + parser.getPredictedTime();
+            }
+        }
+
+        @Override
+        public void onRetry(long retryMillis)
+        {
+        }
+    };
+
+    private final SseReader.Listener gsonListener = new SseReader.Listener()
+    {
+        @Override
+        public void onEvent(String type, Buffer data)
+        {
+            final InstanceInfo info = gson.fromJson(data.readUtf8(), InstanceInfo.class);
+            checksum += info.getWorldId() + info.getConfirmed().getY() + info.getPrediction().getTime();
+        }
+
+        @Override
+        public void onRetry(long retryMillis)
+        {
+        }
+    };
+
+    @Setup
+    public void setup()
+    {
+        stream = BenchmarkData.eventStream(gson, BenchmarkData.instanceInfos());
+    }
+
+    @Benchmark
+    public long worldUpdateParser() throws IOException
+    {
+        checksum = 0;
+        new SseReader(new Buffer().write(stream), parserListener).readAll();
+        return checksum;
+    }
+
+    /**
+     * The stream loop as it was before {@link SseReader}: every line read as a string, and
+     * each data line cut out and decoded with Gson. Like the original, it stops before the
+     * last line.
+     */
+    @Benchmark
+    public long legacyLoop() throws IOException
+    {
+        checksum = 0;
+        final String dataLabel = "data:";
+        try (BufferedSource source = new Buffer().write(stream))
+        {
+            String line;
+            while ((line = source.readUtf8Line()) != null && !source.exhausted())
+            {
+                if (line.startsWith(dataLabel))
+                {
+                    final InstanceInfo info = gson.fromJson(line.substring(dataLabel.length()), InstanceInfo.class);
+                    checksum += info.getWorldId() + info.getConfirmed().getY() + info.getPrediction().getTime();
+                }
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long gson() throws IOException
+    {
+        checksum = 0;
+        new SseReader(new Buffer().write(stream), gsonListener).readAll();
+        return checksum;
+    }
+}
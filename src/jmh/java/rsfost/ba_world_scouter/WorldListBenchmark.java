@@ -0,0 +1,80 @@
+package rsfost.ba_world_scouter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting and patching a world list of {@link BenchmarkData#WORLDS} worlds in each order.
+ * The panel is never shown, so it is driven from the benchmark thread instead of the EDT.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class WorldListBenchmark
+{
+    // A WorldOrder; kept as a string since the generated code can't see the package-private enum
+    @Param({"WORLD", "INSTANCE_Y", "POPULATION", "LAST_UPDATED"})
+    private String order;
+
+    private final int[] ys = new int[1024];
+    private WorldStateStore store;
+    private WorldInfoPanel panel;
+    private long time;
+    private int next;
+
+    @Setup
+    public void setup()
+    {
+        final InstanceInfo[] infos = BenchmarkData.instanceInfos();
+        store = BenchmarkData.store(infos);
+        panel = new WorldInfoPanel(new BaWorldScouterPlugin(), BenchmarkData.config(), store,
+            BenchmarkData.history(infos), new ScouterMetrics());
+        panel.populate();
+        panel.orderBy(WorldInfoPanel.WorldOrder.valueOf(order));
+
+        final Random random = new Random(order.hashCode());
+        for (int i = 0; i < ys.length; ++i)
+        {
+            ys[i] = 4800 + random.nextInt(1000);
+        }
+        time = System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * A full resort. Rows are mostly in order already, as they are on most resorts.
+     */
+    @Benchmark
+    public void updateList()
+    {
+        panel.updateList();
+    }
+
+    /**
+     * A new position for one world, moving its row when sorting by Y or last updated.
+     */
+    @Benchmark
+    public void patch()
+    {
+        final int worldId = BenchmarkData.FIRST_WORLD + next % BenchmarkData.WORLDS;
+        final int y = ys[next % ys.length];
+        ++next;
+        ++time;
+        store.update(worldId, y, time, y, time);
+        panel.patch(worldId);
+    }
+}
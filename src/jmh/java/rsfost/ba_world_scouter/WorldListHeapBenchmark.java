@@ -0,0 +1,91 @@
+package rsfost.ba_world_scouter;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The heap each version of the world list keeps for {@link BenchmarkData#WORLDS} worlds,
+ * reported in the retainedBytes counter. Each invocation collects garbage, builds a list with
+ * its rows and compares the used heap before and after, so the time scores mean nothing here.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class WorldListHeapBenchmark
+{
+    public long retainedBytes;
+
+    private InstanceInfo[] infos;
+    private WorldStateStore store;
+    private WorldHistory history;
+    private BaWorldScouterConfig config;
+
+    @Setup
+    public void setup()
+    {
+        infos = BenchmarkData.instanceInfos();
+        store = BenchmarkData.store(infos);
+        history = BenchmarkData.history(infos);
+        config = BenchmarkData.config();
+        // Loads the flags and fonts up front, so neither version is charged for them
+        new LegacyWorldList(config).populate(rows());
+        new WorldListView(rows(), config, history).getPreferredSize();
+    }
+
+    @Benchmark
+    public void view()
+    {
+        final long before = usedHeap();
+        final WorldListView view = new WorldListView(rows(), config, history);
+        view.setSize(view.getPreferredSize());
+        retainedBytes = usedHeap() - before;
+        Reference.reachabilityFence(view);
+    }
+
+    @Benchmark
+    public void legacy()
+    {
+        final long before = usedHeap();
+        final LegacyWorldList list = new LegacyWorldList(config);
+        list.populate(rows());
+        retainedBytes = usedHeap() - before;
+        Reference.reachabilityFence(list);
+    }
+
+    private List<WorldStateStore.WorldState> rows()
+    {
+        final List<WorldStateStore.WorldState> rows = new ArrayList<>();
+        for (InstanceInfo info : infos)
+        {
+            final WorldStateStore.WorldState row = new WorldStateStore.WorldState();
+            store.read(info.getWorldId(), row);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static long usedHeap()
+    {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i)
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
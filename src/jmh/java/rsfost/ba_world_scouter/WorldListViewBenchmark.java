@@ -0,0 +1,102 @@
+package rsfost.ba_world_scouter;
+
+import net.runelite.client.ui.PluginPanel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The EDT's share of a full refresh of {@link BenchmarkData#WORLDS} worlds: rebuilding the
+ * rows from the store, and painting one screen of them. The legacy benchmarks do the same
+ * with the old panel per row list, for comparison. Run with {@code -prof gc} to see the
+ * allocation per refresh.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class WorldListViewBenchmark
+{
+    private static final int VISIBLE_HEIGHT = 600;
+
+    private WorldInfoPanel panel;
+    private WorldListView view;
+    private List<WorldStateStore.WorldState> rows;
+    private LegacyWorldList legacyList;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setup()
+    {
+        final InstanceInfo[] infos = BenchmarkData.instanceInfos();
+        final WorldStateStore store = BenchmarkData.store(infos);
+        final WorldHistory history = BenchmarkData.history(infos);
+        panel = new WorldInfoPanel(new BaWorldScouterPlugin(), BenchmarkData.config(), store, history,
+            new ScouterMetrics());
+
+        rows = new ArrayList<>();
+        for (InstanceInfo info : infos)
+        {
+            final WorldStateStore.WorldState row = new WorldStateStore.WorldState();
+            store.read(info.getWorldId(), row);
+            rows.add(row);
+        }
+        view = new WorldListView(rows, BenchmarkData.config(), history);
+        view.setSize(view.getPreferredSize());
+        legacyList = new LegacyWorldList(BenchmarkData.config());
+        legacyList.populate(rows);
+
+        image = new BufferedImage(PluginPanel.PANEL_WIDTH, VISIBLE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        graphics.setClip(0, 0, PluginPanel.PANEL_WIDTH, VISIBLE_HEIGHT);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public void populate()
+    {
+        panel.populate();
+    }
+
+    @Benchmark
+    public BufferedImage paintVisibleRows()
+    {
+        view.paint(graphics);
+        return image;
+    }
+
+    @Benchmark
+    public void legacyPopulate()
+    {
+        legacyList.populate(rows);
+    }
+
+    @Benchmark
+    public BufferedImage legacyPaintVisibleRows()
+    {
+        legacyList.getComponent().paint(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,82 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a {@code /worlds} response body and applying it to the store: the whole body as
+ * one string read reflectively by Gson, against {@link InstanceInfoAdapter} reading the
+ * body's source one element at a time as {@code InstanceInfoService.getInstanceInfos} does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldsParseBenchmark
+{
+    @Param({"300", "3000"})
+    private int count;
+
+    private final Gson gson = new Gson();
+    private final InstanceInfoAdapter adapter = new InstanceInfoAdapter();
+    private final WorldStateStore store = new WorldStateStore();
+    private byte[] body;
+
+    @Setup
+    public void setup()
+    {
+        body = gson.toJson(BenchmarkData.instanceInfos(count)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object gsonArray()
+    {
+        final InstanceInfo[] worlds = gson.fromJson(new String(body, StandardCharsets.UTF_8), InstanceInfo[].class);
+        for (InstanceInfo world : worlds)
+        {
+            store.update(world);
+        }
+        return worlds;
+    }
+
+    @Benchmark
+    public int streaming() throws IOException
+    {
+        int worlds = 0;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+            new Buffer().write(body).inputStream(), StandardCharsets.UTF_8)))
+        {
+            reader.beginArray();
+            while (reader.hasNext())
+            {
+                final InstanceInfo world = adapter.read(reader);
+                if (world != null)
+                {
+                    store.update(world);
+                    ++worlds;
+                }
+            }
+            reader.endArray();
+        }
+        return worlds;
+    }
+}
@@ -0,0 +1,59 @@
+package rsfost.ba_world_scouter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One world stream event as the plugin handles it for {@link YThresholdAlerts}: the store
+ * update followed by the alert check, with a threshold inside the range of generated Y
+ * values so worlds keep crossing it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YAlertBenchmark
+{
+    private final Random random = new Random(0);
+    private WorldStateStore store;
+    private YThresholdAlerts alerts;
+    private int alertCount;
+
+    @Setup
+    public void setup()
+    {
+        final InstanceInfo[] infos = BenchmarkData.instanceInfos();
+        store = BenchmarkData.store(infos);
+        alerts = new YThresholdAlerts(store, (worldId, y, threshold) -> ++alertCount);
+        alerts.setThreshold(5300);
+        for (InstanceInfo info : infos)
+        {
+            alerts.update(info.getWorldId());
+        }
+    }
+
+    @Benchmark
+    public void event(Blackhole blackhole)
+    {
+        final int worldId = BenchmarkData.FIRST_WORLD + random.nextInt(BenchmarkData.WORLDS);
+        final long now = System.currentTimeMillis() / 1000;
+        final int y = 4800 + random.nextInt(1000);
+        store.update(worldId, y, now, y + random.nextInt(50), now);
+        alerts.update(worldId);
+        blackhole.consume(alertCount);
+    }
+}
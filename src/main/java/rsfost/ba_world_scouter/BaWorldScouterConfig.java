@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
 
 @ConfigGroup(BaWorldScouterConfig.CONFIG_GROUP)
 public interface BaWorldScouterConfig extends Config
@@ -12,7 +14,21 @@ public interface BaWorldScouterConfig extends Config
     String INDICATOR_ACTIVE_MODE = "indicatorActiveMode";
     String INDICATOR_DISPLAY_MODE = "indicatorDisplayMode";
     String SHOW_PREDICTED_VALUES = "showPredictedValues";
+    String ESTIMATE_Y = "estimateY";
     String HIDE_SIDE_PANEL = "hideSidePanel";
+    String UPDATE_INTERVAL = "updateInterval";
+    String SHOW_DIAGNOSTICS = "showDiagnostics";
+    String INSTANCE_RULES = "instanceRules";
+    String FILTER_REGION = "filterRegion";
+    String FILTER_MIN_POPULATION = "filterMinPopulation";
+    String FILTER_MAX_POPULATION = "filterMaxPopulation";
+    String FILTER_MIN_Y = "filterMinY";
+    String FILTER_MAX_Y = "filterMaxY";
+    String FILTER_MAX_AGE = "filterMaxAge";
+    String ALERT_THRESHOLD = "alertThreshold";
+    String ALERT_NOTIFICATION = "alertNotification";
+    String TOP_WORLDS_COUNT = "topWorldsCount";
+    String TOP_WORLDS_RANKING = "topWorldsRanking";
 
     @ConfigItem(
         keyName = INDICATOR_ACTIVE_MODE,
@@ -47,17 +63,180 @@ public interface BaWorldScouterConfig extends Config
         return false;
     }
 
+    @ConfigItem(
+        keyName = ESTIMATE_Y,
+        name = "Estimate current Y",
+        description = "Extrapolate each world's Y between server updates, coloured by confidence",
+        position = 4
+    )
+    default boolean estimateY()
+    {
+        return false;
+    }
+
     @ConfigItem(
         keyName = HIDE_SIDE_PANEL,
         name = "Hide side panel",
         description = "Hide the world list side panel",
-        position = 4
+        position = 5
     )
     default boolean hideSidePanel()
     {
         return false;
     }
 
+    @ConfigItem(
+        keyName = UPDATE_INTERVAL,
+        name = "Update interval",
+        description = "How long to collect live world updates before applying them to the world list",
+        position = 6
+    )
+    @Range(min = 16, max = 100)
+    @Units(Units.MILLISECONDS)
+    default int updateInterval()
+    {
+        return 50;
+    }
+
+    @ConfigItem(
+        keyName = SHOW_DIAGNOSTICS,
+        name = "Show diagnostics",
+        description = "Show stream, fetch and list timings at the top of the side panel",
+        position = 7
+    )
+    default boolean showDiagnostics()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+        keyName = INSTANCE_RULES,
+        name = "Custom instance rules",
+        description = "Extra Y bands to announce, one per line: regions; minY-maxY; label; #RRGGBB[; required item id]",
+        position = 8
+    )
+    default String instanceRules()
+    {
+        return "";
+    }
+
+    @ConfigItem(
+        keyName = FILTER_REGION,
+        name = "Filter: region",
+        description = "Only list worlds with this flag",
+        position = 9
+    )
+    default RegionFilter filterRegion()
+    {
+        return RegionFilter.ANY;
+    }
+
+    @ConfigItem(
+        keyName = FILTER_MIN_POPULATION,
+        name = "Filter: min population",
+        description = "Only list worlds with at least this many players. 0 for no limit.",
+        position = 10
+    )
+    @Range(max = 2000)
+    default int filterMinPopulation()
+    {
+        return 0;
+    }
+
+    @ConfigItem(
+        keyName = FILTER_MAX_POPULATION,
+        name = "Filter: max population",
+        description = "Only list worlds with at most this many players. 0 for no limit.",
+        position = 11
+    )
+    @Range(max = 2000)
+    default int filterMaxPopulation()
+    {
+        return 0;
+    }
+
+    @ConfigItem(
+        keyName = FILTER_MIN_Y,
+        name = "Filter: min Y",
+        description = "Only list worlds with a Y of at least this. 0 for no limit.",
+        position = 12
+    )
+    @Range(max = 16384)
+    default int filterMinY()
+    {
+        return 0;
+    }
+
+    @ConfigItem(
+        keyName = FILTER_MAX_Y,
+        name = "Filter: max Y",
+        description = "Only list worlds with a Y of at most this. 0 for no limit.",
+        position = 13
+    )
+    @Range(max = 16384)
+    default int filterMaxY()
+    {
+        return 0;
+    }
+
+    @ConfigItem(
+        keyName = FILTER_MAX_AGE,
+        name = "Filter: max age",
+        description = "Only list worlds updated within this many minutes. 0 for no limit.",
+        position = 14
+    )
+    @Units(Units.MINUTES)
+    default int filterMaxAge()
+    {
+        return 0;
+    }
+
+    @ConfigItem(
+        keyName = ALERT_THRESHOLD,
+        name = "Y alert threshold",
+        description = "Post a chat message when a world's confirmed or predicted Y drops below this. 0 to disable.",
+        position = 15
+    )
+    @Range(max = 16384)
+    default int alertThreshold()
+    {
+        return 0;
+    }
+
+    @ConfigItem(
+        keyName = ALERT_NOTIFICATION,
+        name = "Y alert notification",
+        description = "Also send a RuneLite notification for Y alerts, with sound and tray as set in RuneLite",
+        position = 16
+    )
+    default boolean alertNotification()
+    {
+        return true;
+    }
+
+    @ConfigItem(
+        keyName = TOP_WORLDS_COUNT,
+        name = "Best worlds",
+        description = "How many of the best worlds to pin above the world list. 0 to hide.",
+        position = 17
+    )
+    @Range(max = 20)
+    default int topWorldsCount()
+    {
+        return 5;
+    }
+
+    @ConfigItem(
+        keyName = TOP_WORLDS_RANKING,
+        name = "Best worlds by",
+        description = "What makes a world best. Ties are broken by Y, population and data age.",
+        position = 18
+    )
+    default TopWorldsRanking topWorldsRanking()
+    {
+        return TopWorldsRanking.LOWEST_Y;
+    }
+
     @RequiredArgsConstructor
     enum IndicatorDisplayMode
     {
@@ -73,6 +252,54 @@ public interface BaWorldScouterConfig extends Config
         }
     }
 
+    @RequiredArgsConstructor
+    enum RegionFilter
+    {
+        ANY("Any"),
+        US("United States"),
+        US_WEST("US West"),
+        US_EAST("US East"),
+        UK("United Kingdom"),
+        AUSTRALIA("Australia"),
+        GERMANY("Germany");
+
+        private final String name;
+
+        boolean matches(WorldTableRow.Flag flag)
+        {
+            switch (this)
+            {
+                case ANY:
+                    return true;
+                case US:
+                    return flag == WorldTableRow.Flag.US || flag == WorldTableRow.Flag.US_WEST
+                        || flag == WorldTableRow.Flag.US_EAST;
+                default:
+                    return flag != null && flag.name().equals(name());
+            }
+        }
+
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    @RequiredArgsConstructor
+    enum TopWorldsRanking
+    {
+        LOWEST_Y("Lowest Y"),
+        LOWEST_POPULATION("Lowest population"),
+        MOST_RECENT("Most recent");
+
+        private final String name;
+
+        public String toString()
+        {
+            return name;
+        }
+    }
+
     @RequiredArgsConstructor
     enum IndicatorActiveMode
     {
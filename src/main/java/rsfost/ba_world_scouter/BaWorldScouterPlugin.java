@@ -2,6 +2,7 @@ package rsfost.ba_world_scouter;
 
 import com.google.inject.Provides;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.swing.*;
 
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +17,7 @@ import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.GameTick;
 import net.runelite.api.gameval.InventoryID;
 import net.runelite.api.gameval.ItemID;
+import net.runelite.client.Notifier;
 import net.runelite.client.chat.ChatMessageManager;
 import net.runelite.client.chat.QueuedMessage;
 import net.runelite.client.config.ConfigManager;
@@ -31,11 +33,8 @@ import net.runelite.client.ui.overlay.infobox.InfoBoxManager;
 import net.runelite.client.util.ColorUtil;
 import net.runelite.client.util.ImageUtil;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import static rsfost.ba_world_scouter.BaWorldScouterConfig.*;
 
@@ -47,9 +46,6 @@ import static rsfost.ba_world_scouter.BaWorldScouterConfig.*;
 public class BaWorldScouterPlugin extends Plugin
 {
 	private static final int BA_LOBBY_REGION = 10322;
-	private static final int BA_WAVE_REGION = 7509;
-	private static final int BA_WAVE_10_REGION = 7508;
-	private static final int PREMOVE_Y_THRESHOLD = 5300;
 
 	@Inject
 	private Client client;
@@ -60,6 +56,24 @@ public class BaWorldScouterPlugin extends Plugin
 	@Inject
 	private InstanceInfoService instanceInfoService;
 
+	@Inject
+	private WorldStateStore worldStateStore;
+
+	@Inject
+	private WorldSnapshotStore snapshotStore;
+
+	@Inject
+	private WorldHistory worldHistory;
+
+	@Inject
+	private ScouterMetrics scouterMetrics;
+
+	@Inject
+	private WorldReportOutbox reportOutbox;
+
+	@Inject
+	private Notifier notifier;
+
 	@Inject
 	private ItemManager itemManager;
 
@@ -80,20 +94,24 @@ public class BaWorldScouterPlugin extends Plugin
 
 	private NavigationButton navButton;
 	private WorldInfoPanel panel;
+	private WorldUpdateCoalescer updateCoalescer;
+	private YThresholdAlerts yAlerts;
 
 	private PremoveInfoBox premoveInfoBox;
 	private boolean premoveInfoBoxVisible;
+	private volatile InstanceRuleTable ruleTable = InstanceRuleTable.EMPTY;
 
 	private boolean shouldCheckLocation;
 	private int lastRegionId;
-	private ScheduledFuture<?> fetchWorldsFuture;
+	private WorldSyncScheduler syncScheduler;
 	private volatile boolean updatingWorlds;
 
 	@Override
 	protected void startUp() throws Exception
 	{
 		BufferedImage icon = ImageUtil.loadImageResource(BaWorldScouterPlugin.class, "icon.png");
-		panel = new WorldInfoPanel(this, config);
+		compileRules();
+		panel = new WorldInfoPanel(this, config, worldStateStore, worldHistory, scouterMetrics);
 		navButton = NavigationButton.builder()
 			.tooltip("BA World Scouter")
 			.priority(4)
@@ -106,12 +124,26 @@ public class BaWorldScouterPlugin extends Plugin
 		}
 		eventBus.register(panel);
 
-		fetchWorldsFuture = executorService.scheduleAtFixedRate(this::updateWorlds, 10, 30, TimeUnit.SECONDS);
-		instanceInfoService.startWorldStream((update) -> {
-			SwingUtilities.invokeLater(() -> {
-				panel.patch(update);
-			});
+		// Show the last known worlds straight away; anything from the network replaces them
+		executorService.execute(() -> {
+			snapshotStore.load();
+			SwingUtilities.invokeLater(panel::populate);
 		});
+		executorService.execute(reportOutbox::start);
+
+		instanceInfoService.prewarm();
+		syncScheduler = new WorldSyncScheduler(executorService, instanceInfoService, this::updateWorlds,
+			scouterMetrics);
+		syncScheduler.start();
+		updateCoalescer = new WorldUpdateCoalescer(executorService, config::updateInterval, panel::applyPatches,
+			scouterMetrics);
+		yAlerts = new YThresholdAlerts(worldStateStore, this::announceYAlert);
+		yAlerts.setThreshold(config.alertThreshold());
+		instanceInfoService.startWorldStream(worldId -> {
+			snapshotStore.put(worldId);
+			yAlerts.update(worldId);
+			updateCoalescer.offer(worldId);
+		}, () -> updateWorlds(true));
 		eventBus.register(instanceInfoService);
 
 		if (premoveInfoBox == null)
@@ -123,10 +155,14 @@ public class BaWorldScouterPlugin extends Plugin
 	@Override
 	protected void shutDown() throws Exception
 	{
-		fetchWorldsFuture.cancel(true);
+		syncScheduler.stop();
+		// Forcing the mapped file can block on the disk, so it is kept off the EDT
+		executorService.execute(snapshotStore::save);
+		reportOutbox.stop();
 		clientToolbar.removeNavigation(navButton);
 		eventBus.unregister(instanceInfoService);
 		instanceInfoService.stopWorldStream();
+		updateCoalescer.stop();
 		eventBus.unregister(panel);
 		setInfoBoxVisible(false);
 	}
@@ -159,8 +195,9 @@ public class BaWorldScouterPlugin extends Plugin
 		final int templateRegionId = WorldPoint.fromLocalInstance(client,
 			client.getLocalPlayer().getLocalLocation()).getRegionID();
 		log.debug("y = {}, region id = {}", wp.getY(), templateRegionId);
-		instanceInfoService.putInstanceInfo(wp, templateRegionId);
-		announcePremoveCondition(wp, templateRegionId);
+		reportOutbox.offer(new WorldReport(client.getWorld(), wp.getX(), wp.getY(), templateRegionId,
+			System.currentTimeMillis()));
+		announce(ruleTable.match(templateRegionId, wp.getY()), wp.getY());
 		shouldCheckLocation = false;
 		lastRegionId = currentRegionId;
 	}
@@ -181,7 +218,15 @@ public class BaWorldScouterPlugin extends Plugin
 		{
 			return;
 		}
-		if (HIDE_SIDE_PANEL.equals(configChanged.getKey()))
+		if (INDICATOR_ACTIVE_MODE.equals(configChanged.getKey()) || INSTANCE_RULES.equals(configChanged.getKey()))
+		{
+			compileRules();
+		}
+		else if (ALERT_THRESHOLD.equals(configChanged.getKey()))
+		{
+			yAlerts.setThreshold(config.alertThreshold());
+		}
+		else if (HIDE_SIDE_PANEL.equals(configChanged.getKey()))
 		{
 			if (config.hideSidePanel())
 			{
@@ -200,7 +245,17 @@ public class BaWorldScouterPlugin extends Plugin
 		return configManager.getConfig(BaWorldScouterConfig.class);
 	}
 
-	private void updateWorlds()
+	@Provides
+	@Named(InstanceInfoService.API_BASE)
+	String provideApiBase()
+	{
+		return System.getProperty(InstanceInfoService.API_BASE, InstanceInfoService.DEFAULT_API_BASE);
+	}
+
+	/**
+	 * @param fullSync replace the whole list instead of only fetching worlds that changed
+	 */
+	private void updateWorlds(boolean fullSync)
 	{
 		if (updatingWorlds)
 		{
@@ -210,70 +265,92 @@ public class BaWorldScouterPlugin extends Plugin
 
 		updatingWorlds = true;
 		instanceInfoService.getInstanceInfos(
-			instanceInfos -> {
+			!fullSync,
+			worldId -> {
+				// Offered during a full sync too, so the list fills in while the rest downloads
+				snapshotStore.put(worldId);
+				yAlerts.update(worldId);
+				updateCoalescer.offer(worldId);
+			},
+			() -> {
 				updatingWorlds = false;
-				SwingUtilities.invokeLater(() -> {
-					panel.populate(instanceInfos);
-				});
+				if (fullSync)
+				{
+					// Also drops the worlds that weren't in the response
+					snapshotStore.prune();
+					SwingUtilities.invokeLater(panel::populate);
+				}
 			},
+			() -> updatingWorlds = false,
 			error -> {
 				updatingWorlds = false;
+				// Worlds stored before a parse error were already offered to the coalescer, so
+				// there is nothing to redo here
 				log.error("Unable to update instance information", error);
-				panel.updateList();
 			}
 		);
 	}
 
-	private void announcePremoveCondition(WorldPoint wp, int regionId)
+	private void compileRules()
 	{
-		if (config.indicatorActiveMode() == IndicatorActiveMode.DISABLE)
-		{
-			return;
-		}
+		ruleTable = InstanceRuleTable.compile(config.indicatorActiveMode(), config.instanceRules());
+	}
 
-		final boolean baRegionOnly =
-			config.indicatorActiveMode() == IndicatorActiveMode.SCROLLER_ONLY ||
-			config.indicatorActiveMode() == IndicatorActiveMode.BA_ONLY;
-		if (baRegionOnly && regionId != BA_WAVE_REGION && regionId != BA_WAVE_10_REGION)
+	/**
+	 * Announces entering an instance at {@code y}. Only allocates for the chat message.
+	 */
+	private void announce(InstanceRule rule, int y)
+	{
+		if (rule == null)
 		{
 			return;
 		}
 
-		if (config.indicatorActiveMode() == IndicatorActiveMode.SCROLLER_ONLY)
+		if (rule.getRequiredItemId() != InstanceRule.NO_ITEM)
 		{
 			ItemContainer inventory = client.getItemContainer(InventoryID.INV);
-			if (inventory == null || !inventory.contains(ItemID.BARBASSAULT_SCROLL))
+			if (inventory == null || !inventory.contains(rule.getRequiredItemId()))
 			{
 				return;
 			}
 		}
 
-		final String yStr = formatInt(wp.getY());
-		final boolean goodPremove = wp.getY() < PREMOVE_Y_THRESHOLD;
-		final String premoveStr = goodPremove ? "Good premove" : "Bad premove";
 		switch (config.indicatorDisplayMode())
 		{
 			case INFO_BOX_AND_CHAT:
 			case INFO_BOX:
-				premoveInfoBox.setGoodPremove(goodPremove);
-				premoveInfoBox.setText(yStr);
-				premoveInfoBox.setTooltip(premoveStr);
+				premoveInfoBox.setTextColor(rule.getColor());
+				premoveInfoBox.setText(InstanceRule.formatY(y));
+				premoveInfoBox.setTooltip(rule.getLabel());
 				setInfoBoxVisible(true);
 		}
 		switch (config.indicatorDisplayMode())
 		{
 			case INFO_BOX_AND_CHAT:
 			case CHAT:
-				String message = ColorUtil.wrapWithColorTag(
-					String.format("%s (%s)", premoveStr, yStr),
-					goodPremove ? Color.GREEN : Color.RED);
 				chatManager.queue(QueuedMessage.builder()
 					.type(ChatMessageType.CONSOLE)
-					.runeLiteFormattedMessage(message)
+					.runeLiteFormattedMessage(rule.getMessage(y))
 					.build());
 		}
 	}
 
+	/**
+	 * Announces a world dropping below the alert threshold, in the premove indicator's colour for its Y.
+	 */
+	private void announceYAlert(int worldId, int y, int threshold)
+	{
+		final String message = "World " + worldId + " Y dropped below " + threshold + " (" + InstanceRule.formatY(y) + ")";
+		chatManager.queue(QueuedMessage.builder()
+			.type(ChatMessageType.CONSOLE)
+			.runeLiteFormattedMessage(ColorUtil.wrapWithColorTag(message, InstanceRuleTable.premoveColor(y)))
+			.build());
+		if (config.alertNotification())
+		{
+			notifier.notify(message);
+		}
+	}
+
 	private void setInfoBoxVisible(boolean visible)
 	{
 		if (visible && !this.premoveInfoBoxVisible)
@@ -286,9 +363,4 @@ public class BaWorldScouterPlugin extends Plugin
 		}
 		this.premoveInfoBoxVisible = visible;
 	}
-
-	private static String formatInt(int a)
-	{
-		return String.format("%d.%dk", a / 1000, (a % 1000) / 100);
-	}
 }
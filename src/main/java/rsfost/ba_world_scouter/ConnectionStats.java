@@ -0,0 +1,82 @@
+package rsfost.ba_world_scouter;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often the calls of one HTTP client profile had to open a new connection rather
+ * than reuse a pooled one. Installed as the profile's event listener, so it must not block.
+ */
+class ConnectionStats extends EventListener
+{
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failedCalls = new LongAdder();
+    private final LongAdder connectionsAcquired = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder tlsHandshakes = new LongAdder();
+
+    @Override
+    public void callStart(Call call)
+    {
+        calls.increment();
+    }
+
+    @Override
+    public void callFailed(Call call, IOException e)
+    {
+        failedCalls.increment();
+    }
+
+    @Override
+    public void secureConnectStart(Call call)
+    {
+        tlsHandshakes.increment();
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol)
+    {
+        connectionsOpened.increment();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection)
+    {
+        connectionsAcquired.increment();
+    }
+
+    long getCalls()
+    {
+        return calls.sum();
+    }
+
+    long getFailedCalls()
+    {
+        return failedCalls.sum();
+    }
+
+    long getConnectionsOpened()
+    {
+        return connectionsOpened.sum();
+    }
+
+    long getTlsHandshakes()
+    {
+        return tlsHandshakes.sum();
+    }
+
+    /**
+     * Calls that were given a connection without opening one.
+     */
+    long getConnectionsReused()
+    {
+        return Math.max(0, connectionsAcquired.sum() - connectionsOpened.sum());
+    }
+}
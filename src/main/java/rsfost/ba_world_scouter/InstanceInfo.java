@@ -2,7 +2,6 @@ package rsfost.ba_world_scouter;
 
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
-import net.runelite.http.api.worlds.World;
 
 @Data
 @RequiredArgsConstructor
@@ -13,9 +12,6 @@ class InstanceInfo
     private final Coord prediction;
     private final long time;
 
-    private transient World world;
-    private transient int worldLocation;
-
     public int getY()
     {
         return confirmed.getY();
@@ -26,6 +22,14 @@ class InstanceInfo
         return confirmed.getTime();
     }
 
+    /**
+     * The element's own time field, which {@link #getTime()} hides behind the confirmed time.
+     */
+    long getElementTime()
+    {
+        return time;
+    }
+
     @RequiredArgsConstructor
     @Data
     static class Coord
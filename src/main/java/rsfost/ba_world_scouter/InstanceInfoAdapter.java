@@ -0,0 +1,132 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes {@link InstanceInfo} and its {@link InstanceInfo.Coord}s field by field,
+ * without going through reflection. Unknown fields are skipped.
+ *
+ * <p>An element missing its world id or either coordinate, or with a coordinate missing its
+ * time or Y, reads as null, the same as one that is null in the JSON, so callers can skip it
+ * like the world stream skips incomplete updates.</p>
+ */
+class InstanceInfoAdapter extends TypeAdapter<InstanceInfo>
+{
+    @Override
+    public InstanceInfo read(JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+
+        int worldId = 0;
+        InstanceInfo.Coord confirmed = null;
+        InstanceInfo.Coord prediction = null;
+        long time = 0;
+
+        in.beginObject();
+        while (in.hasNext())
+        {
+            switch (in.nextName())
+            {
+                case "worldId":
+                    worldId = in.nextInt();
+                    break;
+                case "confirmed":
+                    confirmed = readCoord(in);
+                    break;
+                case "prediction":
+                    prediction = readCoord(in);
+                    break;
+                case "time":
+                    time = in.nextLong();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        if (worldId <= 0 || confirmed == null || prediction == null)
+        {
+            return null;
+        }
+        return new InstanceInfo(worldId, confirmed, prediction, time);
+    }
+
+    @Override
+    public void write(JsonWriter out, InstanceInfo value) throws IOException
+    {
+        if (value == null)
+        {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("worldId").value(value.getWorldId());
+        out.name("confirmed");
+        writeCoord(out, value.getConfirmed());
+        out.name("prediction");
+        writeCoord(out, value.getPrediction());
+        out.name("time").value(value.getElementTime());
+        out.endObject();
+    }
+
+    private static InstanceInfo.Coord readCoord(JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+
+        long time = 0;
+        int y = 0;
+        boolean hasTime = false;
+        boolean hasY = false;
+        in.beginObject();
+        while (in.hasNext())
+        {
+            switch (in.nextName())
+            {
+                case "time":
+                    time = in.nextLong();
+                    hasTime = true;
+                    break;
+                case "y":
+                    y = in.nextInt();
+                    hasY = true;
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        // A missing Y would otherwise be stored as a real Y of 0
+        return hasTime && hasY ? new InstanceInfo.Coord(time, y) : null;
+    }
+
+    private static void writeCoord(JsonWriter out, InstanceInfo.Coord coord) throws IOException
+    {
+        if (coord == null)
+        {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("time").value(coord.getTime());
+        out.name("y").value(coord.getY());
+        out.endObject();
+    }
+}
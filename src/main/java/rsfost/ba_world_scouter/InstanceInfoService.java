@@ -2,12 +2,15 @@ package rsfost.ba_world_scouter;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
 import net.runelite.api.EnumComposition;
 import net.runelite.api.EnumID;
 import net.runelite.api.GameState;
-import net.runelite.api.coords.WorldPoint;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.WorldsFetch;
@@ -15,50 +18,128 @@ import net.runelite.client.game.WorldService;
 import net.runelite.http.api.worlds.World;
 import net.runelite.http.api.worlds.WorldResult;
 import okhttp3.*;
+import okio.Buffer;
 import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.InterruptedIOException;
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
 
 @Slf4j
 class InstanceInfoService
 {
-    private static final String API_BASE = "https://bascout.jfost.com/api/v1";
+    // Name of the injected API base URL, and the system property that overrides it
+    static final String API_BASE = "ba_world_scouter.apiBase";
+    static final String DEFAULT_API_BASE = "https://bascout.jfost.com/api/v1";
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final String MESSAGE_EVENT = "message";
+    private static final long DEFAULT_SSE_RETRY_MILLIS = 1000;
+    // Bounds on the server's retry hint, so a bad one can't spin or stall reconnects
+    private static final long MIN_SSE_RETRY_MILLIS = 1000;
+    private static final long MAX_SSE_RETRY_MILLIS = 60_000;
+    private static final long MAX_SSE_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // Sent by the stream endpoint when a Last-Event-ID is too old to replay from
+    private static final int HTTP_GONE = 410;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final long REQUEST_CONNECT_TIMEOUT_SECONDS = 5;
+    private static final long REQUEST_READ_TIMEOUT_SECONDS = 10;
+    private static final long REQUEST_CALL_TIMEOUT_SECONDS = 20;
+    private static final long IDLE_THREAD_SECONDS = 30;
 
     private final Client client;
     private final ClientThread clientThread;
     private final WorldService worldService;
-    private final OkHttpClient httpClient;
+    // The world stream is a single call that stays open indefinitely, so it gets its own
+    // dispatcher and no read timeout. Everything else is short and fails fast.
+    private final OkHttpClient streamClient;
+    private final OkHttpClient requestClient;
     private final Gson gson;
+    private final InstanceInfoAdapter instanceInfoAdapter = new InstanceInfoAdapter();
+    private final WorldStateStore store;
+    private final WorldHistory history;
+    private final ScouterMetrics metrics;
+    private final String apiBase;
 
-    private volatile Map<Integer, World> allWorlds;
-    private volatile EnumComposition worldLocations;
-    private volatile ExecutorService sseExecutor;
-    private volatile Future<?> sseFuture;
-    private volatile boolean streaming;
+    private final ScheduledExecutorService executor;
+    // Runs the blocking world list refresh. At most one runs and one waits; a third would only
+    // fetch the same list again.
+    private final ThreadPoolExecutor worldsExecutor;
+
+    private final Object streamLock = new Object();
+    // Guarded by streamLock. Bumped on every start and stop, so callbacks belonging to an
+    // older stream can tell they are out of date.
+    private int streamGeneration;
+    private Call streamCall;
+    private ScheduledFuture<?> reconnectFuture;
+    private volatile IntConsumer streamConsumer;
+    private volatile Runnable streamOnResync;
+    @Getter
+    private volatile StreamState streamState = StreamState.IDLE;
+
+    @Getter
     private volatile int sseFailCount;
+    @Getter
+    private volatile long streamConnectedMillis;
+    @Getter
+    private volatile long lastEventMillis;
+    private volatile long sseRetryMillis = DEFAULT_SSE_RETRY_MILLIS;
+    private volatile String lastEventId;
+    private volatile String worldsEtag;
+    private volatile String worldsLastModified;
+    private final AtomicLong newestTime = new AtomicLong();
 
     @Inject
     public InstanceInfoService(
         Client client, ClientThread clientThread, ScheduledExecutorService executorService,
-        WorldService worldService, OkHttpClient httpClient, Gson gson)
+        WorldService worldService, OkHttpClient httpClient, Gson gson, WorldStateStore store,
+        WorldHistory history, ScouterMetrics metrics, @Named(API_BASE) String apiBase)
     {
         this.client = client;
         this.clientThread = clientThread;
         this.worldService = worldService;
-        this.httpClient = httpClient;
+        this.executor = executorService;
+        this.worldsExecutor = new ThreadPoolExecutor(1, 1, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(1), metrics.threadFactory("BA World Scouter worlds"),
+            (task, pool) -> metrics.recordWorldsRefreshDropped());
+        this.worldsExecutor.allowCoreThreadTimeOut(true);
+        this.streamClient = httpClient.newBuilder()
+            .readTimeout(0, TimeUnit.MILLISECONDS)
+            .dispatcher(new Dispatcher(new ThreadPoolExecutor(0, Integer.MAX_VALUE, IDLE_THREAD_SECONDS,
+                TimeUnit.SECONDS, new SynchronousQueue<>(), metrics.threadFactory("BA World Scouter stream"))))
+            .eventListener(metrics.getStreamConnections())
+            .build();
+        this.requestClient = httpClient.newBuilder()
+            .connectTimeout(REQUEST_CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .readTimeout(REQUEST_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .writeTimeout(REQUEST_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .callTimeout(REQUEST_CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .eventListener(metrics.getRequestConnections())
+            .build();
         this.gson = gson;
+        this.store = store;
+        this.history = history;
+        this.metrics = metrics;
+        this.apiBase = apiBase;
 
         // Get initial world list
         clientThread.invokeLater(() -> {
@@ -66,34 +147,35 @@ class InstanceInfoService
             {
                 return false;
             }
-            executorService.execute(() -> {
-                if (!this.updateWorlds())
-                {
-                    log.warn("Failed to get initial world list.");
-                }
-            });
+            refreshWorlds(() -> log.warn("Failed to get initial world list."));
             return true;
         });
     }
 
-    public void putInstanceInfo(WorldPoint wp, int regionId)
+    /**
+     * Submits one observation of the local player's position.
+     *
+     * @param onDone called once the server has answered, or has rejected the report outright
+     * @param onRetry called when the report may succeed if sent again later
+     */
+    public void putInstanceInfo(WorldReport report, Runnable onDone, Runnable onRetry)
     {
-        final int world = client.getWorld();
         JsonObject data = new JsonObject();
-        data.addProperty("x", wp.getX());
-        data.addProperty("y", wp.getY());
-        data.addProperty("region", regionId);
+        data.addProperty("x", report.getX());
+        data.addProperty("y", report.getY());
+        data.addProperty("region", report.getRegionId());
         Request request = new Request.Builder()
-            .url(API_BASE + "/world/" + world)
+            .url(apiBase + "/world/" + report.getWorldId())
             .put(RequestBody.create(JSON, gson.toJson(data)))
             .build();
-        Call call = httpClient.newCall(request);
+        Call call = requestClient.newCall(request);
         call.enqueue(new Callback()
         {
             @Override
             public void onFailure(Call call, IOException e)
             {
-                log.error("Network error submitting world info", e);
+                log.warn("Network error submitting world info", e);
+                onRetry.run();
             }
 
             @Override
@@ -104,23 +186,80 @@ class InstanceInfoService
                     if (response.code() == 200)
                     {
                         log.debug("Updated world info");
+                        onDone.run();
+                    }
+                    else if (response.code() == HTTP_TOO_MANY_REQUESTS || response.code() >= 500)
+                    {
+                        log.warn("Unable to update world info (http {}), will retry", response.code());
+                        onRetry.run();
                     }
                     else
                     {
                         log.error("Unable to update world info (http {})", response.code());
+                        onDone.run();
                     }
                 }
             }
         });
     }
 
-    public void getInstanceInfos(Consumer<InstanceInfo[]> onSuccess, Consumer<Throwable> onError)
+    /**
+     * Opens a connection to the API ahead of the first real request, so that request doesn't
+     * pay for DNS and the TLS handshake. The stream opens its own connection.
+     */
+    public void prewarm()
     {
         Request request = new Request.Builder()
-            .url(API_BASE + "/worlds")
-            .get()
+            .url(apiBase + "/worlds")
+            .head()
             .build();
-        Call call = httpClient.newCall(request);
+        requestClient.newCall(request).enqueue(new Callback()
+        {
+            @Override
+            public void onFailure(Call call, IOException e)
+            {
+                log.debug("Unable to prewarm connection", e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response)
+            {
+                response.close();
+            }
+        });
+    }
+
+    /**
+     * Fetches world info. Full fetches are conditional on the previous response's validators.
+     *
+     * @param delta only fetch worlds that changed after the newest update held so far. Falls
+     *              back to a full fetch if nothing has been received yet.
+     * @param onWorld called with the id of each world as soon as its info has been stored,
+     *                while the rest of the response is still being read
+     * @param onSuccess called once every world in the response has been stored
+     * @param onNotModified called instead of onSuccess when the server reports no changes
+     */
+    public void getInstanceInfos(boolean delta, IntConsumer onWorld, Runnable onSuccess, Runnable onNotModified,
+        Consumer<Throwable> onError)
+    {
+        final long since = newestTime.get();
+        final boolean deltaRequest = delta && since > 0;
+        Request.Builder requestBuilder = new Request.Builder()
+            .url(apiBase + "/worlds" + (deltaRequest ? "?since=" + since : ""))
+            .get();
+        if (!deltaRequest)
+        {
+            if (worldsEtag != null)
+            {
+                requestBuilder.header("If-None-Match", worldsEtag);
+            }
+            if (worldsLastModified != null)
+            {
+                requestBuilder.header("If-Modified-Since", worldsLastModified);
+            }
+        }
+        Call call = requestClient.newCall(requestBuilder.build());
+        final long startNanos = System.nanoTime();
         call.enqueue(new Callback()
         {
             @Override
@@ -136,6 +275,12 @@ class InstanceInfoService
             {
                 try (ResponseBody respBody = response.body())
                 {
+                    if (response.code() == HTTP_NOT_MODIFIED)
+                    {
+                        log.debug("World info not modified");
+                        onNotModified.run();
+                        return;
+                    }
                     if (!response.isSuccessful())
                     {
                         String message = String.format("Unable to fetch world info (http %d)", response.code());
@@ -151,163 +296,348 @@ class InstanceInfoService
                         return;
                     }
 
-                    String json = respBody.string();
-                    InstanceInfo[] worlds = gson.fromJson(json, InstanceInfo[].class);
-                    Arrays.stream(worlds).forEach(w -> {
-                        if (allWorlds != null)
-                        {
-                            w.setWorld(allWorlds.get(w.getWorldId()));
-                        }
-                        if (worldLocations != null)
+                    // Each world is stored and handed on as soon as it is parsed, without
+                    // waiting for the rest of the array
+                    final LongAdder bytes = new LongAdder();
+                    final BitSet worldIds = new BitSet(WorldStateStore.MAX_WORLDS);
+                    try (JsonReader reader = new JsonReader(new InputStreamReader(
+                        Okio.buffer(countingSource(respBody.source(), bytes::add)).inputStream(), StandardCharsets.UTF_8)))
+                    {
+                        reader.beginArray();
+                        while (reader.hasNext())
                         {
-                            w.setWorldLocation(worldLocations.getIntValue(w.getWorldId()));
+                            final InstanceInfo world = instanceInfoAdapter.read(reader);
+                            if (world == null)
+                            {
+                                log.debug("Ignoring incomplete world info");
+                                continue;
+                            }
+                            store.update(world);
+                            history.record(world.getWorldId(), world.getConfirmed().getY(), world.getConfirmed().getTime(),
+                                world.getPrediction().getY(), world.getPrediction().getTime());
+                            updateNewestTime(Math.max(world.getConfirmed().getTime(), world.getPrediction().getTime()));
+                            worldIds.set(world.getWorldId());
+                            onWorld.accept(world.getWorldId());
                         }
-                    });
-                    onSuccess.accept(worlds);
+                        reader.endArray();
+                    }
+                    catch (IOException | JsonParseException | IllegalStateException | NumberFormatException e)
+                    {
+                        // Worlds parsed before the error have been stored, but the list can't be
+                        // trusted to be complete
+                        log.error("Unable to parse world info", e);
+                        onError.accept(new RuntimeException("Unable to parse world info"));
+                        return;
+                    }
+                    metrics.recordWorldsFetch(System.nanoTime() - startNanos, bytes.sum());
+
+                    if (!deltaRequest)
+                    {
+                        store.retain(worldIds);
+                        worldsEtag = response.header("ETag");
+                        worldsLastModified = response.header("Last-Modified");
+                    }
+                    onSuccess.run();
                 }
             }
         });
     }
 
+    private void updateNewestTime(long time)
+    {
+        newestTime.accumulateAndGet(time, Math::max);
+    }
+
     @Subscribe
     public void onWorldsFetch(WorldsFetch event)
     {
-        updateWorlds();
+        refreshWorlds(() -> {});
     }
 
-    public void startWorldStream(Consumer<InstanceInfo> consumer)
+    /**
+     * Streams world updates into the {@link WorldStateStore}, reconnecting until
+     * {@link #stopWorldStream()} is called. Replaces any stream already running.
+     *
+     * @param consumer called with the id of each world after its update has been stored, and
+     *                 after its population, region or location changed
+     * @param onResync called when the server can no longer replay the updates missed while
+     *                 disconnected, meaning a full snapshot has to be fetched instead
+     */
+    public void startWorldStream(IntConsumer consumer, Runnable onResync)
     {
-        if (sseFuture != null && !sseFuture.isDone())
+        synchronized (streamLock)
         {
-            sseFuture.cancel(true);
+            cancelStream();
+            streamConsumer = consumer;
+            streamOnResync = onResync;
+            connect(++streamGeneration);
         }
-        if (sseExecutor == null || sseExecutor.isShutdown())
+    }
+
+    /**
+     * Stops the stream. Callbacks still in flight for it find their generation out of date
+     * and return without touching anything.
+     */
+    public void stopWorldStream()
+    {
+        synchronized (streamLock)
         {
-            sseExecutor = Executors.newSingleThreadExecutor();
+            ++streamGeneration;
+            cancelStream();
+            streamState = StreamState.STOPPED;
         }
-        streaming = true;
+        // A restarted plugin starts from an empty panel, so it needs a full unconditional fetch
+        lastEventId = null;
+        worldsEtag = null;
+        worldsLastModified = null;
+        newestTime.set(0);
+    }
 
-        Request request = new Request.Builder()
-            .url(API_BASE + "/worlds/stream")
-            .addHeader("Accept", "text/event-stream")
-            .build();
+    boolean isStreamConnected()
+    {
+        return streamState == StreamState.STREAMING;
+    }
 
-        httpClient.newCall(request).enqueue(new Callback()
+    // Must hold streamLock
+    private void connect(int generation)
+    {
+        streamState = StreamState.CONNECTING;
+
+        Request.Builder requestBuilder = new Request.Builder()
+            .url(apiBase + "/worlds/stream")
+            .addHeader("Accept", "text/event-stream");
+        final String resumeId = lastEventId;
+        if (resumeId != null && !resumeId.isEmpty())
+        {
+            // Ask the server to replay whatever was sent while we were disconnected
+            requestBuilder.addHeader("Last-Event-ID", resumeId);
+        }
+
+        streamCall = streamClient.newCall(requestBuilder.build());
+        streamCall.enqueue(new Callback()
         {
             @Override
             public void onResponse(Call call, Response response)
             {
-                sseFuture = sseExecutor.submit(() -> processSseStream(response, consumer));
+                // The stream client has a dispatcher of its own, so its thread can block here
+                // for as long as the stream stays open
+                try (response)
+                {
+                    processSseStream(generation, response, resumeId);
+                }
             }
 
             @Override
             public void onFailure(Call call, IOException e)
             {
-                logSseError(() -> log.error("Network error starting SSE stream", e));
-                sseFuture = sseExecutor.submit(() -> {
-                    sleepBeforeReconnect();
-                    if (streaming)
-                    {
-                        startWorldStream(consumer);
-                    }
-                });
+                if (isCurrent(generation))
+                {
+                    logSseError(() -> log.error("Network error starting SSE stream", e));
+                    scheduleReconnect(generation);
+                }
             }
         });
     }
 
-    private void processSseStream(Response response, Consumer<InstanceInfo> consumer)
+    private void processSseStream(int generation, Response response, String resumeId)
     {
-        if (!response.isSuccessful())
+        if (!isCurrent(generation))
         {
-            logSseError(() -> log.error("Unable to start SSE stream (http {})", response.code()));
-            response.close();
-            sleepBeforeReconnect();
-            if (streaming)
+            return;
+        }
+        if (response.code() == HTTP_GONE && resumeId != null)
+        {
+            log.debug("SSE event id {} has expired, resyncing", resumeId);
+            lastEventId = null;
+            streamOnResync.run();
+            synchronized (streamLock)
             {
-                startWorldStream(consumer);
+                if (generation == streamGeneration)
+                {
+                    connect(generation);
+                }
             }
             return;
         }
+        if (!response.isSuccessful())
+        {
+            logSseError(() -> log.error("Unable to start SSE stream (http {})", response.code()));
+            scheduleReconnect(generation);
+            return;
+        }
 
+        synchronized (streamLock)
+        {
+            if (generation != streamGeneration)
+            {
+                return;
+            }
+            streamState = StreamState.STREAMING;
+        }
         sseFailCount = 0;
+        streamConnectedMillis = System.currentTimeMillis();
 
-        final String dataLabel = "data:";
-        try (BufferedSource source = response.body().source())
+        final IntConsumer consumer = streamConsumer;
+        final WorldUpdateParser parser = new WorldUpdateParser();
+        SseReader reader = null;
+        try (BufferedSource source = Okio.buffer(countingSource(response.body().source(), metrics::recordSseBytes)))
         {
-            String line;
-            while ((line = source.readUtf8Line()) != null && !source.exhausted())
+            reader = new SseReader(source, new SseReader.Listener()
             {
-                if (line.startsWith(dataLabel))
+                @Override
+                public void onEvent(String type, Buffer data) throws IOException
                 {
-                    InstanceInfo update = gson.fromJson(line.substring(dataLabel.length()), InstanceInfo.class);
-                    if (allWorlds != null)
+                    lastEventMillis = System.currentTimeMillis();
+                    if (type != null && !MESSAGE_EVENT.equals(type))
                     {
-                        update.setWorld(allWorlds.get(update.getWorldId()));
+                        log.debug("Ignoring SSE event of type {}", type);
+                        return;
                     }
-                    if (worldLocations != null)
+
+                    final long parseStart = System.nanoTime();
+                    try
                     {
-                        update.setWorldLocation(worldLocations.getIntValue(update.getWorldId()));
+                        if (!parser.parse(data))
+                        {
+                            log.debug("Ignoring incomplete world update");
+                            return;
+                        }
+                    }
+                    catch (MalformedJsonException e)
+                    {
+                        log.warn("Malformed SSE event", e);
+                        return;
                     }
-                    consumer.accept(update);
+                    metrics.recordSseEvent(System.nanoTime() - parseStart);
+
+                    final int worldId = parser.getWorldId();
+                    store.update(worldId, parser.getConfirmedY(), parser.getConfirmedTime(),
+                        parser.getPredictedY(), parser.getPredictedTime());
+                    history.record(worldId, parser.getConfirmedY(), parser.getConfirmedTime(),
+                        parser.getPredictedY(), parser.getPredictedTime());
+                    updateNewestTime(Math.max(parser.getConfirmedTime(), parser.getPredictedTime()));
+                    consumer.accept(worldId);
                 }
-            }
+
+                @Override
+                public void onRetry(long retryMillis)
+                {
+                    sseRetryMillis = Math.max(MIN_SSE_RETRY_MILLIS, Math.min(retryMillis, MAX_SSE_RETRY_MILLIS));
+                }
+            });
+            reader.readAll();
         }
         catch (IOException e)
         {
-            if (e instanceof InterruptedIOException)
+            // Cancelling the call closes the socket, which surfaces here as an IOException
+            if (isCurrent(generation))
             {
-                log.debug("Thread interrupted", e);
+                logSseError(() -> log.error("IO error reading SSE stream", e));
             }
-            else
+        }
+        finally
+        {
+            if (reader != null && reader.getLastEventId() != null && isCurrent(generation))
             {
-                logSseError(() -> log.error("IO error reading SSE stream", e));
+                lastEventId = reader.getLastEventId();
             }
         }
 
-        sleepBeforeReconnect();
-        if (streaming)
+        scheduleReconnect(generation);
+    }
+
+    private void scheduleReconnect(int generation)
+    {
+        synchronized (streamLock)
         {
-            startWorldStream(consumer);
+            if (generation != streamGeneration)
+            {
+                return;
+            }
+
+            // Exponential backoff from the server's retry hint, with half of it randomised so
+            // clients dropped at the same moment don't all come back at the same moment
+            final long backoff = Math.min(MAX_SSE_BACKOFF_MILLIS, sseRetryMillis * (1L << Math.min(6, sseFailCount++)));
+            final long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            streamState = StreamState.BACKOFF;
+            streamCall = null;
+            metrics.recordSseReconnect();
+            reconnectFuture = executor.schedule(() -> {
+                synchronized (streamLock)
+                {
+                    if (generation == streamGeneration)
+                    {
+                        reconnectFuture = null;
+                        connect(generation);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
         }
     }
 
-    private void sleepBeforeReconnect()
+    // Must hold streamLock
+    private void cancelStream()
     {
-        try
+        if (reconnectFuture != null)
         {
-            // exponential backoff
-            Thread.sleep(1000 * (1L << Math.min(6, sseFailCount++)));
+            reconnectFuture.cancel(false);
+            reconnectFuture = null;
         }
-        catch (InterruptedException e)
+        if (streamCall != null)
         {
-            Thread.currentThread().interrupt();
+            streamCall.cancel();
+            streamCall = null;
         }
+        streamState = StreamState.IDLE;
     }
 
-    public void stopWorldStream()
+    private boolean isCurrent(int generation)
     {
-        streaming = false;
-        if (sseFuture != null)
+        synchronized (streamLock)
         {
-            sseFuture.cancel(true);
-            sseFuture = null;
+            return generation == streamGeneration;
         }
-        if (sseExecutor != null)
+    }
+
+    private static ForwardingSource countingSource(BufferedSource source, LongConsumer onRead)
+    {
+        return new ForwardingSource(source)
         {
-            sseExecutor.shutdown();
-            sseExecutor = null;
-        }
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException
+            {
+                final long read = super.read(sink, byteCount);
+                if (read > 0)
+                {
+                    onRead.accept(read);
+                }
+                return read;
+            }
+        };
     }
 
     // SSE error duplication
     private void logSseError(Runnable runnable)
     {
+        metrics.recordSseFailure();
         if (sseFailCount == 0)
         {
             runnable.run();
         }
     }
 
+    private void refreshWorlds(Runnable onFailure)
+    {
+        worldsExecutor.execute(() -> {
+            final long start = System.nanoTime();
+            if (!updateWorlds())
+            {
+                onFailure.run();
+            }
+            metrics.recordWorldsRefresh(System.nanoTime() - start);
+        });
+    }
+
     private boolean updateWorlds()
     {
         if (client.getGameState().ordinal() < GameState.LOGIN_SCREEN.ordinal())
@@ -321,12 +651,45 @@ class InstanceInfoService
             return false;
         }
 
+        // Changed worlds go through the stream's consumer like Y updates do, so the rows,
+        // filter and rankings that use these details pick them up
         List<World> worlds = worldResult.getWorlds();
-        this.allWorlds = worlds.stream().collect(Collectors.toMap(World::getId, w -> w));
+        for (World world : worlds)
+        {
+            if (store.setWorldDetails(world.getId(), world.getPlayers(), world.getRegion()))
+            {
+                worldChanged(world.getId());
+            }
+        }
         clientThread.invokeLater(() -> {
-            this.worldLocations = client.getEnum(EnumID.WORLD_LOCATIONS);
+            EnumComposition worldLocations = client.getEnum(EnumID.WORLD_LOCATIONS);
+            for (World world : worlds)
+            {
+                if (store.setLocation(world.getId(), worldLocations.getIntValue(world.getId())))
+                {
+                    worldChanged(world.getId());
+                }
+            }
         });
 
         return true;
     }
+
+    private void worldChanged(int worldId)
+    {
+        final IntConsumer consumer = streamConsumer;
+        if (consumer != null)
+        {
+            consumer.accept(worldId);
+        }
+    }
+
+    enum StreamState
+    {
+        IDLE,
+        CONNECTING,
+        STREAMING,
+        BACKOFF,
+        STOPPED
+    }
 }
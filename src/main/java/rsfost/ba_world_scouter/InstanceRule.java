@@ -0,0 +1,86 @@
+package rsfost.ba_world_scouter;
+
+import lombok.Getter;
+import net.runelite.client.util.ColorUtil;
+
+import java.awt.Color;
+
+/**
+ * A band of Y values in an instance, and what to announce when the player enters it. Chat
+ * messages are built the first time each 100-Y step is announced and reused afterwards.
+ */
+class InstanceRule
+{
+    static final int NO_ITEM = -1;
+    // Template coordinates never reach this far north
+    private static final int MAX_Y = 1 << 14;
+    private static final int Y_STEP = 100;
+    private static final String[] Y_TEXT = new String[MAX_Y / Y_STEP + 1];
+
+    @Getter
+    private final int minY;
+    // Exclusive
+    @Getter
+    private final int maxY;
+    @Getter
+    private final String label;
+    @Getter
+    private final Color color;
+    @Getter
+    private final int requiredItemId;
+    private final String[] messages = new String[Y_TEXT.length];
+
+    InstanceRule(int minY, int maxY, String label, Color color, int requiredItemId)
+    {
+        this.minY = minY;
+        this.maxY = maxY;
+        this.label = label;
+        this.color = color;
+        this.requiredItemId = requiredItemId;
+    }
+
+    boolean contains(int y)
+    {
+        return y >= minY && y < maxY;
+    }
+
+    InstanceRule withRequiredItem(int itemId)
+    {
+        return new InstanceRule(minY, maxY, label, color, itemId);
+    }
+
+    /**
+     * The chat message for entering this band at {@code y}, e.g. "Good premove (5.2k)".
+     */
+    String getMessage(int y)
+    {
+        final int step = yStep(y);
+        String message = messages[step];
+        if (message == null)
+        {
+            message = ColorUtil.wrapWithColorTag(label + " (" + formatY(y) + ")", color);
+            messages[step] = message;
+        }
+        return message;
+    }
+
+    /**
+     * Formats a Y coordinate in thousands to one decimal place, e.g. 5.2k.
+     */
+    static String formatY(int y)
+    {
+        final int step = yStep(y);
+        String text = Y_TEXT[step];
+        if (text == null)
+        {
+            text = String.format("%d.%dk", step / 10, step % 10);
+            Y_TEXT[step] = text;
+        }
+        return text;
+    }
+
+    private static int yStep(int y)
+    {
+        return Math.max(0, Math.min(MAX_Y, y)) / Y_STEP;
+    }
+}
@@ -0,0 +1,186 @@
+package rsfost.ba_world_scouter;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.gameval.ItemID;
+import net.runelite.client.util.ColorUtil;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * Rules compiled into an array indexed by template region id, so finding the rule for a
+ * position is one array load and a range check per band in that region. Tables are
+ * immutable; a config change compiles a new one.
+ *
+ * <p>Custom rules are one per line: {@code regions; minY-maxY; label; #RRGGBB[; itemId]},
+ * where regions is a comma separated list of template region ids and both Y bounds are
+ * inclusive. Blank lines and lines starting with {@code #} are ignored. Custom rules are
+ * checked before the built-in Barbarian Assault ones.</p>
+ */
+@Slf4j
+class InstanceRuleTable
+{
+    private static final int REGIONS = 1 << 16;
+    private static final int BA_WAVE_REGION = 7509;
+    private static final int BA_WAVE_10_REGION = 7508;
+    private static final int PREMOVE_Y_THRESHOLD = 5300;
+    private static final InstanceRule[] BA_RULES = {
+        new InstanceRule(0, PREMOVE_Y_THRESHOLD, "Good premove", Color.GREEN, InstanceRule.NO_ITEM),
+        new InstanceRule(PREMOVE_Y_THRESHOLD, Integer.MAX_VALUE, "Bad premove", Color.RED, InstanceRule.NO_ITEM),
+    };
+
+    static final InstanceRuleTable EMPTY = new InstanceRuleTable(new InstanceRule[REGIONS][], null);
+
+    private final InstanceRule[][] regions;
+    // Used for regions without rules of their own, if any
+    private final InstanceRule[] fallback;
+
+    private InstanceRuleTable(InstanceRule[][] regions, InstanceRule[] fallback)
+    {
+        this.regions = regions;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Finds the band {@code y} falls in. Does not allocate.
+     *
+     * @return the matching rule, or null if nothing should be announced
+     */
+    InstanceRule match(int regionId, int y)
+    {
+        if (regionId < 0 || regionId >= REGIONS)
+        {
+            return null;
+        }
+        InstanceRule[] rules = regions[regionId];
+        if (rules == null)
+        {
+            rules = fallback;
+            if (rules == null)
+            {
+                return null;
+            }
+        }
+        for (InstanceRule rule : rules)
+        {
+            if (rule.contains(y))
+            {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The colour of the built-in Barbarian Assault band {@code y} falls in.
+     */
+    static Color premoveColor(int y)
+    {
+        for (InstanceRule rule : BA_RULES)
+        {
+            if (rule.contains(y))
+            {
+                return rule.getColor();
+            }
+        }
+        return BA_RULES[BA_RULES.length - 1].getColor();
+    }
+
+    static InstanceRuleTable compile(BaWorldScouterConfig.IndicatorActiveMode mode, String customRules)
+    {
+        if (mode == BaWorldScouterConfig.IndicatorActiveMode.DISABLE)
+        {
+            return EMPTY;
+        }
+
+        final InstanceRule[][] regions = new InstanceRule[REGIONS][];
+        parse(customRules, regions);
+
+        for (InstanceRule rule : BA_RULES)
+        {
+            if (mode == BaWorldScouterConfig.IndicatorActiveMode.SCROLLER_ONLY)
+            {
+                rule = rule.withRequiredItem(ItemID.BARBASSAULT_SCROLL);
+            }
+            add(regions, BA_WAVE_REGION, rule);
+            add(regions, BA_WAVE_10_REGION, rule);
+        }
+
+        return new InstanceRuleTable(regions,
+            mode == BaWorldScouterConfig.IndicatorActiveMode.ALL_INSTANCES ? BA_RULES : null);
+    }
+
+    private static void parse(String text, InstanceRule[][] regions)
+    {
+        if (text == null)
+        {
+            return;
+        }
+
+        final String[] lines = text.split("\n");
+        for (int lineNumber = 0; lineNumber < lines.length; ++lineNumber)
+        {
+            final String line = lines[lineNumber].trim();
+            if (line.isEmpty() || line.startsWith("#"))
+            {
+                continue;
+            }
+
+            try
+            {
+                final String[] fields = line.split(";");
+                if (fields.length < 4 || fields.length > 5)
+                {
+                    throw new IllegalArgumentException("expected 4 or 5 fields");
+                }
+                final String[] range = fields[1].trim().split("-");
+                if (range.length != 2)
+                {
+                    throw new IllegalArgumentException("expected a range like 4800-5299");
+                }
+                final Color color = ColorUtil.fromHex(fields[3].trim());
+                if (color == null)
+                {
+                    throw new IllegalArgumentException("invalid colour " + fields[3].trim());
+                }
+                final InstanceRule rule = new InstanceRule(
+                    Integer.parseInt(range[0].trim()),
+                    Integer.parseInt(range[1].trim()) + 1,
+                    fields[2].trim(),
+                    color,
+                    fields.length == 5 ? Integer.parseInt(fields[4].trim()) : InstanceRule.NO_ITEM);
+                // Every region is checked before any is added, so a bad line adds nothing
+                final String[] regionFields = fields[0].split(",");
+                final int[] regionIds = new int[regionFields.length];
+                for (int i = 0; i < regionFields.length; ++i)
+                {
+                    regionIds[i] = Integer.parseInt(regionFields[i].trim());
+                    if (regionIds[i] < 0 || regionIds[i] >= REGIONS)
+                    {
+                        throw new IllegalArgumentException("invalid region " + regionIds[i]);
+                    }
+                }
+                for (int regionId : regionIds)
+                {
+                    add(regions, regionId, rule);
+                }
+            }
+            catch (IllegalArgumentException e)
+            {
+                log.warn("Ignoring instance rule on line {}: {}", lineNumber + 1, e.getMessage());
+            }
+        }
+    }
+
+    private static void add(InstanceRule[][] regions, int regionId, InstanceRule rule)
+    {
+        final InstanceRule[] rules = regions[regionId];
+        if (rules == null)
+        {
+            regions[regionId] = new InstanceRule[]{rule};
+            return;
+        }
+        regions[regionId] = Arrays.copyOf(rules, rules.length + 1);
+        regions[regionId][rules.length] = rule;
+    }
+}
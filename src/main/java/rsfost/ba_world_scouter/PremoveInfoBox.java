@@ -13,17 +13,12 @@ class PremoveInfoBox extends InfoBox
     @Getter
     @Setter
     private String text;
-    @Getter @Setter
-    private boolean goodPremove;
+    @Getter
+    @Setter
+    private Color textColor;
 
     public PremoveInfoBox(BufferedImage image, Plugin plugin)
     {
         super(image, plugin);
     }
-
-    @Override
-    public Color getTextColor()
-    {
-        return goodPremove ? Color.GREEN : Color.RED;
-    }
 }
@@ -0,0 +1,352 @@
+package rsfost.ba_world_scouter;
+
+import javax.inject.Singleton;
+import java.io.PrintWriter;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms for the path from the server to the world list. Recording is a
+ * handful of uncontended adds, so they are always on.
+ */
+@Singleton
+class ScouterMetrics
+{
+    private final LongAdder sseEvents = new LongAdder();
+    private final LongAdder sseBytes = new LongAdder();
+    private final LongAdder sseReconnects = new LongAdder();
+    private final LongAdder sseFailures = new LongAdder();
+    private final Histogram sseParseNanos = new Histogram();
+
+    private final Histogram worldsFetchNanos = new Histogram();
+    private final Histogram worldsBytes = new Histogram();
+
+    private final LongAdder updatesOffered = new LongAdder();
+    private final LongAdder updatesCoalesced = new LongAdder();
+    private final Histogram updateBatchWorlds = new Histogram();
+
+    private final Histogram edtQueueNanos = new Histogram();
+    private final Histogram updateListNanos = new Histogram();
+
+    private final Histogram worldsRefreshNanos = new Histogram();
+    private final LongAdder worldsRefreshesDropped = new LongAdder();
+    private final LongAdder threadsStarted = new LongAdder();
+
+    private volatile boolean streamHealthy;
+    private volatile long pollIntervalMillis;
+    private volatile long lastPollMillis;
+    private final LongAdder fullPolls = new LongAdder();
+    private final LongAdder deltaPolls = new LongAdder();
+
+    private final ConnectionStats streamConnections = new ConnectionStats();
+    private final ConnectionStats requestConnections = new ConnectionStats();
+
+    void recordSseEvent(long parseNanos)
+    {
+        sseEvents.increment();
+        sseParseNanos.record(parseNanos);
+    }
+
+    void recordSseBytes(long bytes)
+    {
+        sseBytes.add(bytes);
+    }
+
+    void recordSseReconnect()
+    {
+        sseReconnects.increment();
+    }
+
+    void recordSseFailure()
+    {
+        sseFailures.increment();
+    }
+
+    void recordWorldsFetch(long nanos, long bytes)
+    {
+        worldsFetchNanos.record(nanos);
+        worldsBytes.record(bytes);
+    }
+
+    /**
+     * @param coalesced whether the world was already waiting for the next batch
+     */
+    void recordUpdateOffered(boolean coalesced)
+    {
+        updatesOffered.increment();
+        if (coalesced)
+        {
+            updatesCoalesced.increment();
+        }
+    }
+
+    void recordUpdateBatch(int worlds)
+    {
+        updateBatchWorlds.record(worlds);
+    }
+
+    void recordEdtQueueDelay(long nanos)
+    {
+        edtQueueNanos.record(nanos);
+    }
+
+    void recordUpdateList(long nanos)
+    {
+        updateListNanos.record(nanos);
+    }
+
+    void recordWorldsRefresh(long nanos)
+    {
+        worldsRefreshNanos.record(nanos);
+    }
+
+    void recordWorldsRefreshDropped()
+    {
+        worldsRefreshesDropped.increment();
+    }
+
+    void recordSyncSchedule(boolean streamHealthy, long pollIntervalMillis)
+    {
+        this.streamHealthy = streamHealthy;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    void recordSyncPoll(boolean fullSync, long atMillis)
+    {
+        (fullSync ? fullPolls : deltaPolls).increment();
+        lastPollMillis = atMillis;
+    }
+
+    /**
+     * A factory for the plugin's own daemon threads that counts how many it has started.
+     */
+    ThreadFactory threadFactory(String name)
+    {
+        final AtomicInteger number = new AtomicInteger();
+        return runnable -> {
+            threadsStarted.increment();
+            final Thread thread = new Thread(runnable, name + " " + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    long getSseEvents()
+    {
+        return sseEvents.sum();
+    }
+
+    long getSseBytes()
+    {
+        return sseBytes.sum();
+    }
+
+    long getSseReconnects()
+    {
+        return sseReconnects.sum();
+    }
+
+    long getSseFailures()
+    {
+        return sseFailures.sum();
+    }
+
+    Histogram getSseParseNanos()
+    {
+        return sseParseNanos;
+    }
+
+    Histogram getWorldsFetchNanos()
+    {
+        return worldsFetchNanos;
+    }
+
+    Histogram getWorldsBytes()
+    {
+        return worldsBytes;
+    }
+
+    long getUpdatesOffered()
+    {
+        return updatesOffered.sum();
+    }
+
+    long getUpdatesCoalesced()
+    {
+        return updatesCoalesced.sum();
+    }
+
+    /**
+     * Worlds per batch handed to the EDT; its count is the number of batches.
+     */
+    Histogram getUpdateBatchWorlds()
+    {
+        return updateBatchWorlds;
+    }
+
+    Histogram getEdtQueueNanos()
+    {
+        return edtQueueNanos;
+    }
+
+    Histogram getUpdateListNanos()
+    {
+        return updateListNanos;
+    }
+
+    Histogram getWorldsRefreshNanos()
+    {
+        return worldsRefreshNanos;
+    }
+
+    long getWorldsRefreshesDropped()
+    {
+        return worldsRefreshesDropped.sum();
+    }
+
+    long getThreadsStarted()
+    {
+        return threadsStarted.sum();
+    }
+
+    boolean isStreamHealthy()
+    {
+        return streamHealthy;
+    }
+
+    /**
+     * @return how often the world list is polled, or 0 if polling hasn't started
+     */
+    long getPollIntervalMillis()
+    {
+        return pollIntervalMillis;
+    }
+
+    /**
+     * @return when the world list was last polled, or 0 if it hasn't been
+     */
+    long getLastPollMillis()
+    {
+        return lastPollMillis;
+    }
+
+    long getFullPolls()
+    {
+        return fullPolls.sum();
+    }
+
+    long getDeltaPolls()
+    {
+        return deltaPolls.sum();
+    }
+
+    ConnectionStats getStreamConnections()
+    {
+        return streamConnections;
+    }
+
+    ConnectionStats getRequestConnections()
+    {
+        return requestConnections;
+    }
+
+    void dump(PrintWriter out)
+    {
+        out.printf("sse.events %d%n", getSseEvents());
+        out.printf("sse.bytes %d%n", getSseBytes());
+        out.printf("sse.reconnects %d%n", getSseReconnects());
+        out.printf("sse.failures %d%n", getSseFailures());
+        sseParseNanos.dump(out, "sse.parseNanos");
+        worldsFetchNanos.dump(out, "worlds.fetchNanos");
+        worldsBytes.dump(out, "worlds.bytes");
+        out.printf("updates.offered %d%n", getUpdatesOffered());
+        out.printf("updates.coalesced %d%n", getUpdatesCoalesced());
+        updateBatchWorlds.dump(out, "updates.batchWorlds");
+        edtQueueNanos.dump(out, "edt.queueNanos");
+        updateListNanos.dump(out, "panel.updateListNanos");
+        worldsRefreshNanos.dump(out, "worldList.refreshNanos");
+        out.printf("worldList.refreshesDropped %d%n", getWorldsRefreshesDropped());
+        out.printf("threads.started %d%n", getThreadsStarted());
+        out.printf("sync.streamHealthy %b%n", isStreamHealthy());
+        out.printf("sync.pollIntervalMillis %d%n", getPollIntervalMillis());
+        out.printf("sync.lastPollMillis %d%n", getLastPollMillis());
+        out.printf("sync.fullPolls %d%n", getFullPolls());
+        out.printf("sync.deltaPolls %d%n", getDeltaPolls());
+        dump(out, "http.stream", streamConnections);
+        dump(out, "http.request", requestConnections);
+    }
+
+    private static void dump(PrintWriter out, String name, ConnectionStats stats)
+    {
+        out.printf("%s.calls %d%n", name, stats.getCalls());
+        out.printf("%s.failedCalls %d%n", name, stats.getFailedCalls());
+        out.printf("%s.connectionsOpened %d%n", name, stats.getConnectionsOpened());
+        out.printf("%s.connectionsReused %d%n", name, stats.getConnectionsReused());
+        out.printf("%s.tlsHandshakes %d%n", name, stats.getTlsHandshakes());
+    }
+
+    /**
+     * A histogram with power-of-two buckets. Percentiles are the upper bound of the bucket
+     * they fall in, so they are accurate to within a factor of two.
+     */
+    static class Histogram
+    {
+        // Bucket i holds values below 2^i that don't fit in bucket i - 1
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE + 1);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long value)
+        {
+            value = Math.max(0, value);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        long getCount()
+        {
+            return count.sum();
+        }
+
+        long getMax()
+        {
+            return max.get();
+        }
+
+        double getMean()
+        {
+            final long count = getCount();
+            return count == 0 ? 0 : (double) sum.sum() / count;
+        }
+
+        long getPercentile(double percentile)
+        {
+            final long target = (long) Math.ceil(getCount() * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); ++i)
+            {
+                seen += buckets.get(i);
+                if (seen >= target && seen > 0)
+                {
+                    return i == 0 ? 0 : Math.min(getMax(), i >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+                }
+            }
+            return getMax();
+        }
+
+        private void dump(PrintWriter out, String name)
+        {
+            out.printf("%s.count %d%n", name, getCount());
+            out.printf("%s.mean %.0f%n", name, getMean());
+            out.printf("%s.p50 %d%n", name, getPercentile(50));
+            out.printf("%s.p99 %d%n", name, getPercentile(99));
+            out.printf("%s.max %d%n", name, getMax());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package rsfost.ba_world_scouter;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.FontManager;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * A collapsible section showing {@link ScouterMetrics}. Nothing is read from the metrics
+ * while it is collapsed or the side panel is hidden.
+ */
+@Slf4j
+class ScouterMetricsPanel extends JPanel
+{
+    private static final File DUMP_DIR = new File(RuneLite.RUNELITE_DIR, "ba-world-scouter");
+    private static final DateTimeFormatter DUMP_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final int REFRESH_MILLIS = 1000;
+
+    private final ScouterMetrics metrics;
+    private final JLabel title = new JLabel();
+    private final JPanel content = new JPanel(new BorderLayout());
+    private final JPanel body = new JPanel(new GridLayout(0, 2, 4, 0));
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+
+    private final JLabel sseEvents = addRow("Events/s");
+    private final JLabel sseBytes = addRow("Stream KB/s");
+    private final JLabel sseParse = addRow("Parse p50/p99");
+    private final JLabel sseReconnects = addRow("Reconnects");
+    private final JLabel sseFailures = addRow("Stream failures");
+    private final JLabel worldsFetch = addRow("Fetch p50/p99");
+    private final JLabel worldsBytes = addRow("Fetch size");
+    private final JLabel updates = addRow("Updates/merged");
+    private final JLabel updateBatches = addRow("Batches/avg size");
+    private final JLabel edtDelay = addRow("EDT delay p50/p99");
+    private final JLabel updateList = addRow("Sort p50/p99");
+    private final JLabel worldsRefresh = addRow("World list p50/p99");
+    private final JLabel syncSchedule = addRow("Sync");
+    private final JLabel lastPoll = addRow("Last poll");
+    private final JLabel polls = addRow("Polls full/delta");
+    private final JLabel threadsStarted = addRow("Threads started");
+    private final JLabel streamConnections = addRow("Stream new/reused");
+    private final JLabel requestConnections = addRow("Request new/reused");
+
+    private boolean expanded;
+    private boolean active;
+    private long lastRefreshNanos;
+    private long lastEvents;
+    private long lastBytes;
+
+    ScouterMetricsPanel(ScouterMetrics metrics)
+    {
+        this.metrics = metrics;
+
+        setLayout(new BorderLayout());
+        setBorder(new EmptyBorder(0, 0, 5, 0));
+
+        title.setFont(FontManager.getRunescapeSmallFont());
+        title.setBorder(new EmptyBorder(2, 5, 2, 5));
+        title.setOpaque(true);
+        title.setBackground(ColorScheme.SCROLL_TRACK_COLOR);
+        title.addMouseListener(new MouseAdapter()
+        {
+            @Override
+            public void mousePressed(MouseEvent e)
+            {
+                setExpanded(!expanded);
+            }
+        });
+
+        final JButton dumpButton = new JButton("Save to file");
+        dumpButton.setFont(FontManager.getRunescapeSmallFont());
+        dumpButton.addActionListener(e -> dump());
+
+        body.setBorder(new EmptyBorder(2, 5, 2, 5));
+        content.add(body, BorderLayout.CENTER);
+        content.add(dumpButton, BorderLayout.SOUTH);
+        content.setVisible(false);
+
+        add(title, BorderLayout.NORTH);
+        add(content, BorderLayout.CENTER);
+        updateTitle();
+    }
+
+    /**
+     * Starts or stops refreshing along with the side panel.
+     */
+    void setActive(boolean active)
+    {
+        this.active = active;
+        updateTimer();
+    }
+
+    private void setExpanded(boolean expanded)
+    {
+        this.expanded = expanded;
+        content.setVisible(expanded);
+        updateTitle();
+        updateTimer();
+        revalidate();
+    }
+
+    private void updateTitle()
+    {
+        title.setText((expanded ? "- " : "+ ") + "Diagnostics");
+    }
+
+    private void updateTimer()
+    {
+        if (expanded && active)
+        {
+            lastRefreshNanos = 0;
+            refresh();
+            refreshTimer.start();
+        }
+        else
+        {
+            refreshTimer.stop();
+        }
+    }
+
+    private void refresh()
+    {
+        final long now = System.nanoTime();
+        final long events = metrics.getSseEvents();
+        final long bytes = metrics.getSseBytes();
+        if (lastRefreshNanos != 0)
+        {
+            final double seconds = (now - lastRefreshNanos) / 1e9;
+            sseEvents.setText(String.format("%.1f", (events - lastEvents) / seconds));
+            sseBytes.setText(String.format("%.1f", (bytes - lastBytes) / 1024.0 / seconds));
+        }
+        lastRefreshNanos = now;
+        lastEvents = events;
+        lastBytes = bytes;
+
+        sseParse.setText(formatPercentiles(metrics.getSseParseNanos(), 1_000, "us"));
+        sseReconnects.setText(Long.toString(metrics.getSseReconnects()));
+        sseFailures.setText(Long.toString(metrics.getSseFailures()));
+        worldsFetch.setText(formatPercentiles(metrics.getWorldsFetchNanos(), 1_000_000, "ms"));
+        worldsBytes.setText(metrics.getWorldsBytes().getCount() == 0
+            ? "-" : String.format("%.1f KB", metrics.getWorldsBytes().getMean() / 1024));
+        updates.setText(metrics.getUpdatesOffered() + "/" + metrics.getUpdatesCoalesced());
+        final ScouterMetrics.Histogram batchWorlds = metrics.getUpdateBatchWorlds();
+        updateBatches.setText(batchWorlds.getCount() == 0
+            ? "-" : String.format("%d/%.1f", batchWorlds.getCount(), batchWorlds.getMean()));
+        edtDelay.setText(formatPercentiles(metrics.getEdtQueueNanos(), 1_000_000, "ms"));
+        updateList.setText(formatPercentiles(metrics.getUpdateListNanos(), 1_000, "us"));
+        worldsRefresh.setText(formatPercentiles(metrics.getWorldsRefreshNanos(), 1_000_000, "ms"));
+        syncSchedule.setText(formatSchedule(metrics));
+        final long lastPollMillis = metrics.getLastPollMillis();
+        lastPoll.setText(lastPollMillis == 0 ? "-" : (System.currentTimeMillis() - lastPollMillis) / 1000 + "s ago");
+        polls.setText(metrics.getFullPolls() + "/" + metrics.getDeltaPolls());
+        threadsStarted.setText(Long.toString(metrics.getThreadsStarted()));
+        streamConnections.setText(formatConnections(metrics.getStreamConnections()));
+        requestConnections.setText(formatConnections(metrics.getRequestConnections()));
+    }
+
+    private void dump()
+    {
+        final File file = new File(DUMP_DIR, "metrics-" + LocalDateTime.now().format(DUMP_TIMESTAMP) + ".txt");
+        DUMP_DIR.mkdirs();
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8))
+        {
+            metrics.dump(out);
+            log.info("Saved metrics to {}", file);
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to save metrics", e);
+        }
+    }
+
+    private JLabel addRow(String name)
+    {
+        final JLabel nameLabel = new JLabel(name);
+        nameLabel.setFont(FontManager.getRunescapeSmallFont());
+        final JLabel valueLabel = new JLabel("-");
+        valueLabel.setFont(FontManager.getRunescapeSmallFont());
+        valueLabel.setForeground(Color.WHITE);
+        body.add(nameLabel);
+        body.add(valueLabel);
+        return valueLabel;
+    }
+
+    private static String formatSchedule(ScouterMetrics metrics)
+    {
+        final long intervalMillis = metrics.getPollIntervalMillis();
+        if (intervalMillis == 0)
+        {
+            return "-";
+        }
+        return (metrics.isStreamHealthy() ? "stream up" : "stream down") + ", every " + intervalMillis / 1000 + "s";
+    }
+
+    private static String formatConnections(ConnectionStats stats)
+    {
+        return stats.getConnectionsOpened() + "/" + stats.getConnectionsReused();
+    }
+
+    private static String formatPercentiles(ScouterMetrics.Histogram histogram, long unitNanos, String unit)
+    {
+        if (histogram.getCount() == 0)
+        {
+            return "-";
+        }
+        return histogram.getPercentile(50) / unitNanos + "/" + histogram.getPercentile(99) / unitNanos + " " + unit;
+    }
+}
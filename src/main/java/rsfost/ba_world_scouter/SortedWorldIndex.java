@@ -0,0 +1,112 @@
+package rsfost.ba_world_scouter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Worlds sorted by one value, as keys packing the value above the world id like the list's
+ * sort keys. Updating a world is a binary search and a shift, and finding the worlds in a
+ * range only visits those worlds. Not thread safe.
+ */
+class SortedWorldIndex
+{
+    static final long NO_LIMIT = Long.MIN_VALUE;
+
+    private final long[] keys = new long[WorldStateStore.MAX_WORLDS];
+    private final long[] values = new long[WorldStateStore.MAX_WORLDS];
+    private final BitSet indexed = new BitSet(WorldStateStore.MAX_WORLDS);
+    private int size;
+
+    void put(int worldId, long value)
+    {
+        if (indexed.get(worldId))
+        {
+            if (values[worldId] == value)
+            {
+                return;
+            }
+            remove(worldId);
+        }
+
+        final long key = key(value, worldId);
+        final int index = -Arrays.binarySearch(keys, 0, size, key) - 1;
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        keys[index] = key;
+        ++size;
+        values[worldId] = value;
+        indexed.set(worldId);
+    }
+
+    void remove(int worldId)
+    {
+        if (!indexed.get(worldId))
+        {
+            return;
+        }
+        final int index = Arrays.binarySearch(keys, 0, size, key(values[worldId], worldId));
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        --size;
+        indexed.clear(worldId);
+    }
+
+    boolean contains(int worldId)
+    {
+        return indexed.get(worldId);
+    }
+
+    /**
+     * Whether a world's value is known and within the inclusive bounds. Unbounded ranges
+     * match every world.
+     */
+    boolean matches(int worldId, long min, long max)
+    {
+        if (min == NO_LIMIT && max == NO_LIMIT)
+        {
+            return true;
+        }
+        final long value = values[worldId];
+        return indexed.get(worldId)
+            && value != WorldStateStore.UNKNOWN
+            && (min == NO_LIMIT || value >= min)
+            && (max == NO_LIMIT || value <= max);
+    }
+
+    /**
+     * Removes from {@code worlds} every world outside the inclusive bounds.
+     */
+    void retain(BitSet worlds, long min, long max, BitSet scratch)
+    {
+        if (min == NO_LIMIT && max == NO_LIMIT)
+        {
+            return;
+        }
+        collect(min, max, scratch);
+        worlds.and(scratch);
+    }
+
+    /**
+     * Writes the worlds whose value is known and within the inclusive bounds into
+     * {@code out}, visiting only those worlds.
+     */
+    void collect(long min, long max, BitSet out)
+    {
+        // Unknown values sort below every real one, so a missing lower bound starts above
+        // them. World 0 doesn't exist, so the search always lands on an insertion point.
+        final long from = key(min == NO_LIMIT ? WorldStateStore.UNKNOWN + 1 : min, 0);
+        out.clear();
+        for (int index = -Arrays.binarySearch(keys, 0, size, from) - 1; index < size; ++index)
+        {
+            final long key = keys[index];
+            if (max != NO_LIMIT && key >> WorldStateStore.WORLD_ID_BITS > max)
+            {
+                break;
+            }
+            out.set((int) (key & WorldStateStore.WORLD_ID_MASK));
+        }
+    }
+
+    private static long key(long value, int worldId)
+    {
+        return (value << WorldStateStore.WORLD_ID_BITS) | worldId;
+    }
+}
@@ -0,0 +1,135 @@
+package rsfost.ba_world_scouter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+/**
+ * World rows kept in the order of their packed sort keys, so that a changed row can be moved
+ * with a binary search instead of resorting every row.
+ */
+class SortedWorldRows
+{
+    private final ArrayList<WorldStateStore.WorldState> rows;
+    private final ToLongFunction<WorldStateStore.WorldState> sortKey;
+
+    // Sort key of each row, by position. Kept sorted alongside rows.
+    private final long[] keys = new long[WorldStateStore.MAX_WORLDS];
+    // Sort key of each row, by world id, since estimated keys can't be recomputed later
+    private final long[] worldKeys = new long[WorldStateStore.MAX_WORLDS];
+    private final WorldStateStore.WorldState[] byWorld = new WorldStateStore.WorldState[WorldStateStore.MAX_WORLDS];
+
+    /**
+     * @param rows the list to keep in order, shared with whatever displays it
+     * @param sortKey the row's packed key; keys must be unique
+     */
+    SortedWorldRows(ArrayList<WorldStateStore.WorldState> rows, ToLongFunction<WorldStateStore.WorldState> sortKey)
+    {
+        this.rows = rows;
+        this.sortKey = sortKey;
+    }
+
+    /**
+     * Re-keys and resorts every row.
+     */
+    void sort()
+    {
+        final int size = rows.size();
+        for (int i = 0; i < size; ++i)
+        {
+            final WorldStateStore.WorldState row = rows.get(i);
+            keys[i] = key(row);
+            byWorld[row.getWorldId()] = row;
+        }
+        Arrays.sort(keys, 0, size);
+        for (int i = 0; i < size; ++i)
+        {
+            final int worldId = (int) (keys[i] & WorldStateStore.WORLD_ID_MASK);
+            rows.set(i, byWorld[worldId]);
+            byWorld[worldId] = null;
+        }
+    }
+
+    /**
+     * Recomputes every key in place without moving any rows.
+     *
+     * @return whether the rows are still in order
+     */
+    boolean rekey()
+    {
+        boolean sorted = true;
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < rows.size(); ++i)
+        {
+            final long key = key(rows.get(i));
+            keys[i] = key;
+            sorted &= key > previous;
+            previous = key;
+        }
+        return sorted;
+    }
+
+    /**
+     * Finds a row by the key it was last placed with, so its data may have changed since.
+     *
+     * @return the row's position, or -1 if it isn't in the list
+     */
+    int indexOf(WorldStateStore.WorldState row)
+    {
+        final int index = Arrays.binarySearch(keys, 0, rows.size(), worldKeys[row.getWorldId()]);
+        return index >= 0 && rows.get(index) == row ? index : -1;
+    }
+
+    void insert(WorldStateStore.WorldState row)
+    {
+        final int size = rows.size();
+        final long key = key(row);
+        final int index = -Arrays.binarySearch(keys, 0, size, key) - 1;
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        keys[index] = key;
+        rows.add(index, row);
+    }
+
+    WorldStateStore.WorldState remove(int index)
+    {
+        System.arraycopy(keys, index + 1, keys, index, rows.size() - index - 1);
+        return rows.remove(index);
+    }
+
+    /**
+     * Re-keys the row at {@code oldIndex} and moves it to wherever its new key belongs,
+     * shifting only the rows in between.
+     *
+     * @return the row's new position
+     */
+    int move(int oldIndex)
+    {
+        final long newKey = key(rows.get(oldIndex));
+        if (keys[oldIndex] == newKey)
+        {
+            return oldIndex;
+        }
+
+        // Keys are unique, so this is always an insertion point
+        int newIndex = -Arrays.binarySearch(keys, 0, rows.size(), newKey) - 1;
+        if (newIndex > oldIndex)
+        {
+            --newIndex;
+            System.arraycopy(keys, oldIndex + 1, keys, oldIndex, newIndex - oldIndex);
+        }
+        else
+        {
+            System.arraycopy(keys, newIndex, keys, newIndex + 1, oldIndex - newIndex);
+        }
+        keys[newIndex] = newKey;
+        rows.add(newIndex, rows.remove(oldIndex));
+        return newIndex;
+    }
+
+    private long key(WorldStateStore.WorldState row)
+    {
+        final long key = sortKey.applyAsLong(row);
+        worldKeys[row.getWorldId()] = key;
+        return key;
+    }
+}
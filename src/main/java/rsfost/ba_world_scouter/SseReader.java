@@ -0,0 +1,234 @@
+package rsfost.ba_world_scouter;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+import java.io.IOException;
+
+/**
+ * Reads a {@code text/event-stream} body following the Server-Sent Events spec. Lines are
+ * scanned as bytes straight out of the source's buffer and event data is collected in a
+ * buffer that is reused between events, so no Strings are created for the data itself.
+ */
+class SseReader
+{
+    private static final ByteString BYTE_ORDER_MARK = ByteString.of((byte) 0xEF, (byte) 0xBB, (byte) 0xBF);
+    private static final ByteString LINE_TERMINATORS = ByteString.encodeUtf8("\r\n");
+    private static final ByteString FIELD_DATA = ByteString.encodeUtf8("data");
+    private static final ByteString FIELD_EVENT = ByteString.encodeUtf8("event");
+    private static final ByteString FIELD_ID = ByteString.encodeUtf8("id");
+    private static final ByteString FIELD_RETRY = ByteString.encodeUtf8("retry");
+
+    interface Listener
+    {
+        /**
+         * @param type the event type, or null for the default "message" type
+         * @param data the event data. Only valid until this method returns.
+         */
+        void onEvent(String type, Buffer data) throws IOException;
+
+        /**
+         * Called when the server asks for a different reconnection time.
+         */
+        void onRetry(long retryMillis);
+    }
+
+    private final BufferedSource source;
+    private final Listener listener;
+
+    private final Buffer data = new Buffer();
+    private boolean hasData;
+    private String eventType;
+    private String eventIdBuffer;
+    private String lastEventId;
+    // Set when the previous line ended with a CR, which may be the first half of a CRLF
+    private boolean skipLineFeed;
+    private boolean started;
+
+    SseReader(BufferedSource source, Listener listener)
+    {
+        this.source = source;
+        this.listener = listener;
+    }
+
+    /**
+     * The id of the last dispatched event, or null if the server never sent one.
+     */
+    String getLastEventId()
+    {
+        return lastEventId;
+    }
+
+    /**
+     * Reads and dispatches events until the stream ends. An event that is not terminated by
+     * a blank line before the end of the stream is discarded, as the spec requires.
+     */
+    void readAll() throws IOException
+    {
+        while (readLine())
+        {
+        }
+    }
+
+    /**
+     * Processes a single line, dispatching an event if it was blank.
+     *
+     * @return false once the end of the stream has been reached
+     */
+    boolean readLine() throws IOException
+    {
+        if (!started)
+        {
+            // The stream may start with a byte order mark, which isn't part of the first line
+            started = true;
+            if (source.rangeEquals(0, BYTE_ORDER_MARK))
+            {
+                source.skip(BYTE_ORDER_MARK.size());
+            }
+        }
+
+        if (skipLineFeed)
+        {
+            skipLineFeed = false;
+            if (!source.request(1))
+            {
+                return false;
+            }
+            if (source.buffer().getByte(0) == '\n')
+            {
+                source.skip(1);
+            }
+        }
+
+        final long lineEnd = source.indexOfElement(LINE_TERMINATORS);
+        if (lineEnd == -1)
+        {
+            return false;
+        }
+
+        final Buffer buffer = source.buffer();
+        final byte terminator = buffer.getByte(lineEnd);
+        if (lineEnd == 0)
+        {
+            dispatch();
+        }
+        else if (buffer.getByte(0) == ':')
+        {
+            // comment
+            source.skip(lineEnd);
+        }
+        else
+        {
+            processField(buffer, lineEnd);
+        }
+
+        source.skip(1);
+        skipLineFeed = terminator == '\r';
+        return true;
+    }
+
+    /**
+     * Consumes exactly {@code lineEnd} bytes.
+     */
+    private void processField(Buffer buffer, long lineEnd) throws IOException
+    {
+        final long colon = buffer.indexOf((byte) ':', 0, lineEnd);
+        final long nameEnd = colon == -1 ? lineEnd : colon;
+        long valueStart = colon == -1 ? lineEnd : colon + 1;
+        if (valueStart < lineEnd && buffer.getByte(valueStart) == ' ')
+        {
+            ++valueStart;
+        }
+        final long valueLength = lineEnd - valueStart;
+
+        if (isField(buffer, nameEnd, FIELD_DATA))
+        {
+            source.skip(valueStart);
+            if (hasData)
+            {
+                data.writeByte('\n');
+            }
+            source.readFully(data, valueLength);
+            hasData = true;
+        }
+        else if (isField(buffer, nameEnd, FIELD_EVENT))
+        {
+            source.skip(valueStart);
+            eventType = source.readUtf8(valueLength);
+        }
+        else if (isField(buffer, nameEnd, FIELD_ID))
+        {
+            source.skip(valueStart);
+            final String id = source.readUtf8(valueLength);
+            if (id.indexOf('\0') == -1)
+            {
+                eventIdBuffer = id;
+            }
+        }
+        else if (isField(buffer, nameEnd, FIELD_RETRY))
+        {
+            final long retry = parseDigits(buffer, valueStart, lineEnd);
+            if (retry >= 0)
+            {
+                listener.onRetry(retry);
+            }
+            source.skip(lineEnd);
+        }
+        else
+        {
+            source.skip(lineEnd);
+        }
+    }
+
+    private void dispatch() throws IOException
+    {
+        lastEventId = eventIdBuffer;
+        final String type = eventType;
+        eventType = null;
+        if (!hasData)
+        {
+            return;
+        }
+
+        hasData = false;
+        try
+        {
+            listener.onEvent(type, data);
+        }
+        finally
+        {
+            data.clear();
+        }
+    }
+
+    private static boolean isField(Buffer buffer, long nameEnd, ByteString name)
+    {
+        return nameEnd == name.size() && buffer.rangeEquals(0, name);
+    }
+
+    /**
+     * @return the value of the ASCII digits in the given range, saturating at
+     * {@link Long#MAX_VALUE}, or -1 if it has anything else in it
+     */
+    private static long parseDigits(Buffer buffer, long start, long end)
+    {
+        if (start == end)
+        {
+            return -1;
+        }
+
+        long value = 0;
+        for (long i = start; i < end; ++i)
+        {
+            final byte b = buffer.getByte(i);
+            if (b < '0' || b > '9')
+            {
+                return -1;
+            }
+            final int digit = b - '0';
+            value = value > (Long.MAX_VALUE - digit) / 10 ? Long.MAX_VALUE : value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,197 @@
+package rsfost.ba_world_scouter;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The worlds ranked best first, kept as a sorted array of world ids so that one world
+ * changing is a binary search and a shift, and reading the top few never sorts anything.
+ *
+ * <p>Each ranking orders by its own value first and breaks ties with the others: lower Y,
+ * then lower population, then more recently confirmed, then world id. Worlds whose ranked
+ * value is unknown, and stale ones, are left out.</p>
+ */
+class TopWorlds
+{
+    // The values each world is ranked by, as of its last update. The ranked array is ordered
+    // by these, so a world must be taken out of it before they change.
+    private final int[] y = new int[WorldStateStore.MAX_WORLDS];
+    private final int[] population = new int[WorldStateStore.MAX_WORLDS];
+    private final long[] time = new long[WorldStateStore.MAX_WORLDS];
+    private final WorldStateStore.WorldState[] rows = new WorldStateStore.WorldState[WorldStateStore.MAX_WORLDS];
+    private final int[] ranked = new int[WorldStateStore.MAX_WORLDS];
+    private final BitSet isRanked = new BitSet(WorldStateStore.MAX_WORLDS);
+    private int size;
+
+    private BaWorldScouterConfig.TopWorldsRanking ranking = BaWorldScouterConfig.TopWorldsRanking.LOWEST_Y;
+    private boolean predicted;
+
+    /**
+     * Changes what worlds are ranked by. Drops every world; add them back with
+     * {@link #update}.
+     */
+    void configure(BaWorldScouterConfig.TopWorldsRanking ranking, boolean predicted)
+    {
+        this.ranking = ranking;
+        this.predicted = predicted;
+        clear();
+    }
+
+    void clear()
+    {
+        isRanked.clear();
+        size = 0;
+    }
+
+    /**
+     * Re-ranks one world from its current values.
+     */
+    void update(WorldStateStore.WorldState row)
+    {
+        final int worldId = row.getWorldId();
+        remove(worldId);
+
+        y[worldId] = orMax(row.getY(predicted));
+        population[worldId] = orMax(row.getPopulation());
+        time[worldId] = row.getConfirmedTime();
+        rows[worldId] = row;
+        if (!row.isStale() && isKnown(worldId))
+        {
+            // World ids break every tie, so this is always an insertion point
+            final int index = -search(worldId) - 1;
+            System.arraycopy(ranked, index, ranked, index + 1, size - index);
+            ranked[index] = worldId;
+            ++size;
+            isRanked.set(worldId);
+        }
+    }
+
+    void remove(int worldId)
+    {
+        if (!isRanked.get(worldId))
+        {
+            return;
+        }
+        final int index = search(worldId);
+        System.arraycopy(ranked, index + 1, ranked, index, size - index - 1);
+        --size;
+        isRanked.clear(worldId);
+    }
+
+    /**
+     * Replaces {@code out} with the best {@code k} worlds, if they differ from what it holds.
+     *
+     * @return whether {@code out} changed
+     */
+    boolean top(int k, List<WorldStateStore.WorldState> out)
+    {
+        final int count = Math.max(0, Math.min(k, size));
+        boolean same = count == out.size();
+        for (int i = 0; same && i < count; ++i)
+        {
+            same = out.get(i) == rows[ranked[i]];
+        }
+        if (same)
+        {
+            return false;
+        }
+
+        out.clear();
+        for (int i = 0; i < count; ++i)
+        {
+            out.add(rows[ranked[i]]);
+        }
+        return true;
+    }
+
+    /**
+     * Binary searches the ranked worlds for one, by its current values.
+     *
+     * @return its position if ranked, otherwise {@code -(insertion point) - 1}
+     */
+    private int search(int worldId)
+    {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            final int c = compare(ranked[mid], worldId);
+            if (c < 0)
+            {
+                low = mid + 1;
+            }
+            else if (c > 0)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private boolean isKnown(int worldId)
+    {
+        switch (ranking)
+        {
+            case LOWEST_POPULATION:
+                return population[worldId] != Integer.MAX_VALUE;
+            case MOST_RECENT:
+                return time[worldId] > 0;
+            case LOWEST_Y:
+            default:
+                return y[worldId] != Integer.MAX_VALUE;
+        }
+    }
+
+    private int compare(int a, int b)
+    {
+        int c;
+        switch (ranking)
+        {
+            case LOWEST_POPULATION:
+                c = Integer.compare(population[a], population[b]);
+                if (c == 0)
+                {
+                    c = Integer.compare(y[a], y[b]);
+                }
+                if (c == 0)
+                {
+                    c = Long.compare(time[b], time[a]);
+                }
+                break;
+            case MOST_RECENT:
+                c = Long.compare(time[b], time[a]);
+                if (c == 0)
+                {
+                    c = Integer.compare(y[a], y[b]);
+                }
+                if (c == 0)
+                {
+                    c = Integer.compare(population[a], population[b]);
+                }
+                break;
+            case LOWEST_Y:
+            default:
+                c = Integer.compare(y[a], y[b]);
+                if (c == 0)
+                {
+                    c = Integer.compare(population[a], population[b]);
+                }
+                if (c == 0)
+                {
+                    c = Long.compare(time[b], time[a]);
+                }
+                break;
+        }
+        return c != 0 ? c : Integer.compare(a, b);
+    }
+
+    private static int orMax(int value)
+    {
+        return value == WorldStateStore.UNKNOWN ? Integer.MAX_VALUE : value;
+    }
+}
@@ -0,0 +1,155 @@
+package rsfost.ba_world_scouter;
+
+import java.util.BitSet;
+
+/**
+ * Decides which worlds the list shows. Each filtered attribute has an index sorted by value
+ * that is updated one world at a time, so new filter bounds only visit the worlds inside
+ * them, and one world's update only touches that world's entries.
+ *
+ * <p>Bounds are inclusive. An attribute with no bounds set is not checked; one with bounds
+ * excludes worlds whose value is unknown.</p>
+ */
+class WorldFilter
+{
+    private static final long NO_LIMIT = SortedWorldIndex.NO_LIMIT;
+    private static final WorldTableRow.Flag[] FLAGS = WorldTableRow.Flag.values();
+
+    private final BitSet present = new BitSet(WorldStateStore.MAX_WORLDS);
+    private final BitSet[] byFlag = new BitSet[FLAGS.length];
+    private final WorldTableRow.Flag[] flags = new WorldTableRow.Flag[WorldStateStore.MAX_WORLDS];
+    private final SortedWorldIndex yIndex = new SortedWorldIndex();
+    private final SortedWorldIndex populationIndex = new SortedWorldIndex();
+    private final SortedWorldIndex timeIndex = new SortedWorldIndex();
+
+    private BaWorldScouterConfig.RegionFilter region = BaWorldScouterConfig.RegionFilter.ANY;
+    private long minY = NO_LIMIT;
+    private long maxY = NO_LIMIT;
+    private long minPopulation = NO_LIMIT;
+    private long maxPopulation = NO_LIMIT;
+    private int maxAgeMinutes;
+    private long minTime = NO_LIMIT;
+    private boolean predicted;
+
+    WorldFilter()
+    {
+        for (int i = 0; i < byFlag.length; ++i)
+        {
+            byFlag[i] = new BitSet(WorldStateStore.MAX_WORLDS);
+        }
+    }
+
+    /**
+     * Takes the filter bounds from the config.
+     *
+     * @return whether the Y index has to be rebuilt, because the Y being shown changed
+     */
+    boolean configure(BaWorldScouterConfig config)
+    {
+        region = config.filterRegion();
+        minPopulation = orNoLimit(config.filterMinPopulation());
+        maxPopulation = orNoLimit(config.filterMaxPopulation());
+        minY = orNoLimit(config.filterMinY());
+        maxY = orNoLimit(config.filterMaxY());
+        maxAgeMinutes = config.filterMaxAge();
+        updateMinTime(System.currentTimeMillis());
+
+        final boolean wasPredicted = predicted;
+        predicted = config.showPredictedValues();
+        return predicted != wasPredicted;
+    }
+
+    /**
+     * Moves the age cutoff up to the current time.
+     *
+     * @return whether there is an age filter, and so whether the matches may have changed
+     */
+    boolean updateMinTime(long nowMillis)
+    {
+        minTime = maxAgeMinutes == 0 ? NO_LIMIT : nowMillis / 1000 - maxAgeMinutes * 60L;
+        return maxAgeMinutes != 0;
+    }
+
+    /**
+     * Records a world's current values.
+     */
+    void update(WorldStateStore.WorldState row)
+    {
+        final int worldId = row.getWorldId();
+        present.set(worldId);
+
+        final WorldTableRow.Flag flag = WorldTableRow.getFlagRegion(row.getRegion(), row.getLocation());
+        if (flags[worldId] != flag)
+        {
+            if (flags[worldId] != null)
+            {
+                byFlag[flags[worldId].ordinal()].clear(worldId);
+            }
+            if (flag != null)
+            {
+                byFlag[flag.ordinal()].set(worldId);
+            }
+            flags[worldId] = flag;
+        }
+
+        yIndex.put(worldId, row.getY(predicted));
+        populationIndex.put(worldId, row.getPopulation());
+        timeIndex.put(worldId, row.getConfirmedTime());
+    }
+
+    void remove(int worldId)
+    {
+        present.clear(worldId);
+        if (flags[worldId] != null)
+        {
+            byFlag[flags[worldId].ordinal()].clear(worldId);
+            flags[worldId] = null;
+        }
+        yIndex.remove(worldId);
+        populationIndex.remove(worldId);
+        timeIndex.remove(worldId);
+    }
+
+    /**
+     * Whether one world passes, from the values last given to {@link #update}.
+     */
+    boolean matches(int worldId)
+    {
+        return present.get(worldId)
+            && (region == BaWorldScouterConfig.RegionFilter.ANY || region.matches(flags[worldId]))
+            && yIndex.matches(worldId, minY, maxY)
+            && populationIndex.matches(worldId, minPopulation, maxPopulation)
+            && timeIndex.matches(worldId, minTime, NO_LIMIT);
+    }
+
+    /**
+     * Writes every world that passes into {@code out}.
+     */
+    void collect(BitSet out, BitSet scratch)
+    {
+        out.clear();
+        if (region == BaWorldScouterConfig.RegionFilter.ANY)
+        {
+            out.or(present);
+        }
+        else
+        {
+            for (WorldTableRow.Flag flag : FLAGS)
+            {
+                if (region.matches(flag))
+                {
+                    out.or(byFlag[flag.ordinal()]);
+                }
+            }
+        }
+
+        yIndex.retain(out, minY, maxY, scratch);
+        populationIndex.retain(out, minPopulation, maxPopulation, scratch);
+        timeIndex.retain(out, minTime, NO_LIMIT, scratch);
+    }
+
+    private static long orNoLimit(int value)
+    {
+        return value == 0 ? NO_LIMIT : value;
+    }
+}
@@ -0,0 +1,142 @@
+package rsfost.ba_world_scouter;
+
+import lombok.Getter;
+
+import javax.inject.Singleton;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The most recent instance Y samples of every world, in a fixed-capacity ring per world.
+ * All rings share flat primitive arrays sized up front, so the footprint is bounded at
+ * {@link #CAPACITY} samples per world regardless of how long the plugin runs.
+ *
+ * <p>Like {@link WorldStateStore}, writers are serialized on the history and readers don't
+ * lock; each world's sequence number is odd while it is being written and readers retry
+ * until it is stable.</p>
+ */
+@Singleton
+class WorldHistory
+{
+    static final int CAPACITY = 32;
+
+    private static final int SLOTS = WorldStateStore.MAX_WORLDS * CAPACITY;
+
+    private final AtomicIntegerArray versions = new AtomicIntegerArray(WorldStateStore.MAX_WORLDS);
+    // Samples ever appended per world; the ring holds the last CAPACITY of them
+    private final int[] counts = new int[WorldStateStore.MAX_WORLDS];
+    private final long[] times = new long[SLOTS];
+    private final int[] ys = new int[SLOTS];
+    private final boolean[] predicted = new boolean[SLOTS];
+
+    // Only touched by writers, to avoid recording the same sample twice
+    private final long[] lastConfirmedTime = new long[WorldStateStore.MAX_WORLDS];
+    private final long[] lastPredictedTime = new long[WorldStateStore.MAX_WORLDS];
+    private final int[] lastPredictedY = new int[WorldStateStore.MAX_WORLDS];
+
+    /**
+     * Appends whichever of the confirmed and predicted positions are new for the world.
+     */
+    synchronized void record(int worldId, int confirmedY, long confirmedTime, int predictedY, long predictedTime)
+    {
+        if (!WorldStateStore.isValidWorld(worldId))
+        {
+            return;
+        }
+
+        final boolean newConfirmed = confirmedTime > lastConfirmedTime[worldId];
+        final boolean newPrediction = predictedTime != lastPredictedTime[worldId] || predictedY != lastPredictedY[worldId];
+        if (!newConfirmed && !newPrediction)
+        {
+            return;
+        }
+
+        versions.incrementAndGet(worldId);
+        VarHandle.storeStoreFence();
+        if (newConfirmed)
+        {
+            lastConfirmedTime[worldId] = confirmedTime;
+            append(worldId, confirmedTime, confirmedY, false);
+        }
+        if (newPrediction)
+        {
+            lastPredictedTime[worldId] = predictedTime;
+            lastPredictedY[worldId] = predictedY;
+            append(worldId, predictedTime, predictedY, true);
+        }
+        versions.incrementAndGet(worldId);
+    }
+
+    /**
+     * A number that changes whenever the world gains samples. Cheap enough to poll before
+     * deciding whether to {@link #read(int, Samples)}.
+     */
+    int getVersion(int worldId)
+    {
+        return WorldStateStore.isValidWorld(worldId) ? versions.get(worldId) : 0;
+    }
+
+    /**
+     * Copies a world's samples into {@code out}, oldest first, without locking.
+     *
+     * @return the version the samples were read at
+     */
+    int read(int worldId, Samples out)
+    {
+        out.size = 0;
+        if (!WorldStateStore.isValidWorld(worldId))
+        {
+            return 0;
+        }
+
+        final int base = worldId * CAPACITY;
+        while (true)
+        {
+            final int version = versions.get(worldId);
+            if ((version & 1) != 0)
+            {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            final int count = counts[worldId];
+            final int size = Math.min(count, CAPACITY);
+            for (int i = 0; i < size; ++i)
+            {
+                final int slot = base + (count - size + i) % CAPACITY;
+                out.times[i] = times[slot];
+                out.ys[i] = ys[slot];
+                out.predicted[i] = predicted[slot];
+            }
+
+            VarHandle.loadLoadFence();
+            if (versions.get(worldId) == version)
+            {
+                out.size = size;
+                return version;
+            }
+        }
+    }
+
+    private void append(int worldId, long time, int y, boolean isPrediction)
+    {
+        final int slot = worldId * CAPACITY + counts[worldId] % CAPACITY;
+        times[slot] = time;
+        ys[slot] = y;
+        predicted[slot] = isPrediction;
+        // Wraps after ~2 billion samples, which only disturbs the ring's starting point once
+        counts[worldId] = (counts[worldId] + 1) & Integer.MAX_VALUE;
+    }
+
+    /**
+     * A reusable copy of one world's samples.
+     */
+    @Getter
+    static class Samples
+    {
+        private final long[] times = new long[CAPACITY];
+        private final int[] ys = new int[CAPACITY];
+        private final boolean[] predicted = new boolean[CAPACITY];
+        private int size;
+    }
+}
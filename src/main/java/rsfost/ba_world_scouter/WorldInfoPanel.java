@@ -26,178 +26,500 @@
  */
 package rsfost.ba_world_scouter;
 
-import com.google.common.collect.Ordering;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.ui.ColorScheme;
 import net.runelite.client.ui.DynamicGridLayout;
+import net.runelite.client.ui.FontManager;
 import net.runelite.client.ui.PluginPanel;
 
 import javax.swing.*;
+import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Function;
+import java.util.BitSet;
 
 /**
  * Borrows heavily from World Hopper plugin
  */
 class WorldInfoPanel extends PluginPanel
 {
-    private static final Color ODD_ROW = new Color(44, 44, 44);
-
     private static final int WORLD_COLUMN_WIDTH = 60;
     private static final int Y_COLUMN_WIDTH = 40;
     private static final int POPULATION_COLUMN_WIDTH = 45;
     private static final int LAST_UPDATED_COLUMN_WIDTH = 47;
+    private static final int AGE_FILTER_CHECK_MILLIS = 15_000;
+    // How often estimated Y sort keys are brought up to date, matching the list's estimate tick
+    private static final int ESTIMATE_RESORT_MILLIS = 1000;
 
     private final BaWorldScouterPlugin plugin;
     private final BaWorldScouterConfig config;
-    private final JPanel listContainer;
+    private final WorldStateStore store;
+    private final WorldListView listView;
+    private final ScouterMetrics metrics;
+    private final ScouterMetricsPanel metricsPanel;
+    private final JPanel topPanel;
+    private final WorldListView topView;
 
     private WorldOrder orderIndex = WorldOrder.WORLD;
     private boolean ascendingOrder = true;
 
-    private final ArrayList<WorldTableRow> rows = new ArrayList<>();
-    private final Map<Integer, WorldTableRow> rowLookup = new HashMap<>();
+    private final ArrayList<WorldStateStore.WorldState> rows = new ArrayList<>();
+    private final WorldStateStore.WorldState[] rowLookup = new WorldStateStore.WorldState[WorldStateStore.MAX_WORLDS];
+    private final SortedWorldRows sortedRows = new SortedWorldRows(rows, this::sortKey);
+    private boolean sortPredicted;
+    private boolean sortEstimated;
+
+    private final WorldFilter filter = new WorldFilter();
+    // Worlds that are in rows, i.e. that passed the filter when last checked
+    private final BitSet visible = new BitSet(WorldStateStore.MAX_WORLDS);
+    private final BitSet matching = new BitSet(WorldStateStore.MAX_WORLDS);
+    private final BitSet scratch = new BitSet(WorldStateStore.MAX_WORLDS);
+    // The best few of the visible worlds, pinned above the list
+    private final TopWorlds topWorlds = new TopWorlds();
+    private final ArrayList<WorldStateStore.WorldState> topRows = new ArrayList<>();
+
+    private final Timer ageFilterTimer = new Timer(AGE_FILTER_CHECK_MILLIS, e -> {
+        if (filter.updateMinTime(System.currentTimeMillis()))
+        {
+            applyFilter();
+        }
+    });
+
+    private final Timer estimateTimer = new Timer(ESTIMATE_RESORT_MILLIS, e -> rekeyEstimates());
 
     private WorldInfoHeader worldHeader;
     private WorldInfoHeader yHeader;
     private WorldInfoHeader popHeader;
     private WorldInfoHeader lastUpdatedHeader;
 
-    public WorldInfoPanel(BaWorldScouterPlugin plugin, BaWorldScouterConfig config)
+    public WorldInfoPanel(BaWorldScouterPlugin plugin, BaWorldScouterConfig config, WorldStateStore store,
+        WorldHistory history, ScouterMetrics metrics)
     {
         this.plugin = plugin;
         this.config = config;
+        this.store = store;
+        this.metrics = metrics;
+        this.sortPredicted = config.showPredictedValues();
+        this.sortEstimated = config.estimateY();
+        this.filter.configure(config);
 
         setBorder(null);
         setLayout(new DynamicGridLayout(0, 1));
 
         JPanel headerContainer = buildHeader();
-        this.listContainer = new JPanel();
-        listContainer.setLayout(new GridLayout(0, 1));
+        this.listView = new WorldListView(rows, config, history);
+        this.metricsPanel = new ScouterMetricsPanel(metrics);
+        this.topView = new WorldListView(topRows, config, history);
+        this.topPanel = buildTopPanel();
 
+        if (config.showDiagnostics())
+        {
+            add(metricsPanel);
+        }
+        add(topPanel);
         add(headerContainer);
-        add(listContainer);
+        add(listView);
     }
 
-    void populate(InstanceInfo[] worlds)
+    /**
+     * Brings the rows in line with every world in the store and rebuilds the list.
+     */
+    void populate()
     {
         rows.clear();
-        rowLookup.clear();
-
-        for (InstanceInfo instanceInfo : worlds)
+        visible.clear();
+        for (int worldId = 1; worldId < WorldStateStore.MAX_WORLDS; ++worldId)
         {
-            WorldTableRow row = new WorldTableRow(instanceInfo, config);
-            rows.add(row);
-            rowLookup.put(instanceInfo.getWorldId(), row);
+            WorldStateStore.WorldState row = rowLookup[worldId];
+            if (!store.isPresent(worldId))
+            {
+                if (row != null)
+                {
+                    filter.remove(worldId);
+                    rowLookup[worldId] = null;
+                }
+                continue;
+            }
+            if (row == null)
+            {
+                row = new WorldStateStore.WorldState();
+                rowLookup[worldId] = row;
+            }
+            store.read(worldId, row);
+            filter.update(row);
+            if (filter.matches(worldId))
+            {
+                rows.add(row);
+                visible.set(worldId);
+            }
         }
         updateList();
+        rebuildTop();
+    }
+
+    /**
+     * Re-reads one world from the store and moves its row to its new position, adding or
+     * removing it if it started or stopped passing the filter.
+     */
+    void patch(int worldId)
+    {
+        patchRow(worldId);
+        refreshTop(worldId);
     }
 
-    void patch(InstanceInfo patch)
+    private void patchRow(int worldId)
     {
-        WorldTableRow row = rowLookup.get(patch.getWorldId());
-        if (row != null)
+        WorldStateStore.WorldState row = rowLookup[worldId];
+        if (row == null)
         {
-            row.setInstanceInfo(patch);
+            if (!store.isPresent(worldId))
+            {
+                return;
+            }
+            row = new WorldStateStore.WorldState();
+            rowLookup[worldId] = row;
+            store.read(worldId, row);
+            filter.update(row);
+            if (filter.matches(worldId))
+            {
+                insertRow(row);
+                listView.rowsChanged();
+            }
+            return;
         }
-        else
+
+        final boolean wasVisible = visible.get(worldId);
+        final int oldIndex = wasVisible ? sortedRows.indexOf(row) : -1;
+        if ((wasVisible && oldIndex < 0) || !store.isPresent(worldId))
         {
-            row = new WorldTableRow(patch, config);
-            rows.add(row);
-            rowLookup.put(patch.getWorldId(), row);
+            populate();
+            return;
         }
-        updateList();
+
+        store.read(worldId, row);
+        filter.update(row);
+        if (!filter.matches(worldId))
+        {
+            if (wasVisible)
+            {
+                removeRow(oldIndex);
+                listView.rowsChanged();
+            }
+            return;
+        }
+        if (!wasVisible)
+        {
+            insertRow(row);
+            listView.rowsChanged();
+            return;
+        }
+
+        topWorlds.update(row);
+        final int newIndex = sortedRows.move(oldIndex);
+
+        // Everything between the two positions shifted by one, stripes included
+        listView.rowsUpdated(Math.min(oldIndex, newIndex), Math.max(oldIndex, newIndex));
     }
 
-    void updateList()
+    /**
+     * Brings the rows in line with the filter. Only the worlds that start or stop passing
+     * are touched.
+     */
+    void applyFilter()
     {
-        listContainer.removeAll();
+        filter.collect(matching, scratch);
+        final BitSet changed = scratch;
+        changed.clear();
+        changed.or(matching);
+        changed.xor(visible);
+        if (changed.isEmpty())
+        {
+            return;
+        }
 
-        rows.sort((r1, r2) -> {
-            switch (orderIndex)
+        if (changed.cardinality() > Math.max(1, rows.size() / 4))
+        {
+            rows.clear();
+            for (int worldId = matching.nextSetBit(0); worldId >= 0; worldId = matching.nextSetBit(worldId + 1))
             {
-                case INSTANCE_Y:
-                    return getCompareValue(r1, r2, row ->
-                    {
-                        if (config.showPredictedValues())
-                        {
-                            return row.getInstanceInfo().getPrediction().getY();
-                        }
-                        else
-                        {
-                            return row.getInstanceInfo().getConfirmed().getY();
-                        }
-                    });
-                case WORLD:
-                    return getCompareValue(r1, r2, row -> row.getInstanceInfo().getWorldId());
-                case POPULATION:
-                    return getCompareValue(r1, r2, row -> {
-                        if (row.getInstanceInfo().getWorld() == null)
-                        {
-                            return Integer.MAX_VALUE;
-                        }
-                        return row.getInstanceInfo().getWorld().getPlayers();
-                    });
-                case LAST_UPDATED:
-                    return getCompareValue(r1, r2, row -> row.getInstanceInfo().getTime());
-                default:
-                    return 0;
+                rows.add(rowLookup[worldId]);
             }
-        });
+            visible.clear();
+            visible.or(matching);
+            updateList();
+            rebuildTop();
+            return;
+        }
+
+        for (int worldId = changed.nextSetBit(0); worldId >= 0; worldId = changed.nextSetBit(worldId + 1))
+        {
+            if (matching.get(worldId))
+            {
+                insertRow(rowLookup[worldId]);
+            }
+            else
+            {
+                removeRow(sortedRows.indexOf(rowLookup[worldId]));
+            }
+        }
+        listView.rowsChanged();
+        refreshTopAll();
+    }
+
+    /**
+     * Applies a batch of changed worlds. Large batches are cheaper to apply with a single
+     * rebuild than by moving rows one at a time.
+     */
+    void applyPatches(BitSet worldIds)
+    {
+        if (worldIds.cardinality() <= Math.max(1, rows.size() / 4))
+        {
+            for (int worldId = worldIds.nextSetBit(0); worldId >= 0; worldId = worldIds.nextSetBit(worldId + 1))
+            {
+                patch(worldId);
+            }
+            return;
+        }
+
+        populate();
+    }
+
+    /**
+     * Re-sorts the whole list. Only needed when the ordering itself changes; single row
+     * changes go through {@link #patch(int)}.
+     */
+    void updateList()
+    {
+        final long start = System.nanoTime();
+        sortPredicted = config.showPredictedValues();
+        sortEstimated = config.estimateY();
+        sortedRows.sort();
+        metrics.recordUpdateList(System.nanoTime() - start);
+
+        listView.rowsChanged();
+    }
+
+    /**
+     * Estimated Y keys go out of date as the estimates move, so they are recomputed in place
+     * and the list is only resorted if that put it out of order.
+     */
+    private void rekeyEstimates()
+    {
+        if (!sortEstimated || orderIndex != WorldOrder.INSTANCE_Y)
+        {
+            return;
+        }
+        if (!sortedRows.rekey())
+        {
+            updateList();
+        }
+    }
+
+    private void insertRow(WorldStateStore.WorldState row)
+    {
+        sortedRows.insert(row);
+        visible.set(row.getWorldId());
+        topWorlds.update(row);
+    }
+
+    private void removeRow(int index)
+    {
+        final int worldId = sortedRows.remove(index).getWorldId();
+        visible.clear(worldId);
+        topWorlds.remove(worldId);
+    }
+
+    /**
+     * Re-ranks every visible world, for when the ranking itself changes.
+     */
+    private void rebuildTop()
+    {
+        topWorlds.configure(config.topWorldsRanking(), config.showPredictedValues());
+        for (WorldStateStore.WorldState row : rows)
+        {
+            topWorlds.update(row);
+        }
+        refreshTopAll();
+    }
 
-        for (int i = 0; i < rows.size(); ++i)
+    /**
+     * Repaints the pinned worlds. The whole view is only laid out again when its worlds or
+     * their order changed; otherwise at most the row of the world that was just patched is
+     * repainted.
+     */
+    private void refreshTop(int worldId)
+    {
+        if (topWorlds.top(config.topWorldsCount(), topRows))
+        {
+            topView.rowsChanged();
+            return;
+        }
+        final int index = topRows.indexOf(rowLookup[worldId]);
+        if (index >= 0)
         {
-            WorldTableRow row = rows.get(i);
-            row.setBackground(i % 2 == 0 ? ODD_ROW : ColorScheme.DARK_GRAY_COLOR);
-            listContainer.add(row);
+            topView.rowsUpdated(index, index);
         }
+    }
 
-        listContainer.revalidate();
-        listContainer.repaint();
+    /**
+     * Repaints every pinned world, for when any of them may have changed rather than one.
+     */
+    private void refreshTopAll()
+    {
+        if (topWorlds.top(config.topWorldsCount(), topRows))
+        {
+            topView.rowsChanged();
+        }
+        else if (!topRows.isEmpty())
+        {
+            topView.rowsUpdated(0, topRows.size() - 1);
+        }
     }
 
-    private int getCompareValue(WorldTableRow row1, WorldTableRow row2, Function<WorldTableRow, Comparable> compareByFn)
+    private long sortKey(WorldStateStore.WorldState row)
     {
-        Ordering<Comparable> ordering = Ordering.natural();
-        if (!ascendingOrder)
+        if (sortEstimated && orderIndex == WorldOrder.INSTANCE_Y)
         {
-            ordering = ordering.reverse();
+            return packKey(WorldYEstimator.estimateY(row, System.currentTimeMillis()), ascendingOrder, row.getWorldId());
         }
-        ordering = ordering.nullsLast();
-        return ordering.compare(compareByFn.apply(row1), compareByFn.apply(row2));
+        return sortKey(row, orderIndex, ascendingOrder, sortPredicted);
+    }
+
+    /**
+     * Packs a row's position into one long: the ordered value in the high bits and the
+     * world id in the low bits. Ties are broken by world id, so every row has a unique key
+     * and a plain primitive sort gives the same order as a stable one.
+     */
+    static long sortKey(WorldStateStore.WorldState row, WorldOrder order, boolean ascending, boolean predicted)
+    {
+        final long value;
+        switch (order)
+        {
+            case INSTANCE_Y:
+                value = row.getY(predicted);
+                break;
+            case POPULATION:
+                value = row.getPopulation() == WorldStateStore.UNKNOWN ? Integer.MAX_VALUE : row.getPopulation();
+                break;
+            case LAST_UPDATED:
+                value = row.getConfirmedTime();
+                break;
+            case WORLD:
+            default:
+                value = row.getWorldId();
+                break;
+        }
+        return packKey(value, ascending, row.getWorldId());
+    }
+
+    private static long packKey(long value, boolean ascending, int worldId)
+    {
+        return ((ascending ? value : -value) << WorldStateStore.WORLD_ID_BITS) | worldId;
     }
 
     @Override
     public void onActivate()
     {
-
+        listView.startTicker();
+        topView.startTicker();
+        metricsPanel.setActive(true);
+        ageFilterTimer.start();
+        estimateTimer.start();
     }
 
     @Override
     public void onDeactivate()
     {
-
+        listView.stopTicker();
+        topView.stopTicker();
+        metricsPanel.setActive(false);
+        ageFilterTimer.stop();
+        estimateTimer.stop();
     }
 
     @Subscribe
     public void onConfigChanged(ConfigChanged event)
     {
-        if ("ba_world_scouter".equals(event.getGroup()) && "showPredictedValues".equals(event.getKey()))
+        if (BaWorldScouterConfig.CONFIG_GROUP.equals(event.getGroup())
+            && (BaWorldScouterConfig.SHOW_PREDICTED_VALUES.equals(event.getKey())
+                || BaWorldScouterConfig.ESTIMATE_Y.equals(event.getKey())))
         {
             SwingUtilities.invokeLater(() -> {
-                yHeader.setTitle(config.showPredictedValues() ? "~Y" : "Y");
+                yHeader.setTitle(getYTitle());
+                reconfigureFilter();
                 this.updateList();
+                rebuildTop();
             });
         }
+        else if (BaWorldScouterConfig.CONFIG_GROUP.equals(event.getGroup())
+            && (BaWorldScouterConfig.TOP_WORLDS_COUNT.equals(event.getKey())
+                || BaWorldScouterConfig.TOP_WORLDS_RANKING.equals(event.getKey())))
+        {
+            SwingUtilities.invokeLater(() -> {
+                topPanel.setVisible(config.topWorldsCount() > 0);
+                rebuildTop();
+            });
+        }
+        else if (BaWorldScouterConfig.CONFIG_GROUP.equals(event.getGroup()) && isFilterKey(event.getKey()))
+        {
+            SwingUtilities.invokeLater(this::reconfigureFilter);
+        }
+        else if (BaWorldScouterConfig.CONFIG_GROUP.equals(event.getGroup())
+            && BaWorldScouterConfig.SHOW_DIAGNOSTICS.equals(event.getKey()))
+        {
+            SwingUtilities.invokeLater(() -> {
+                remove(metricsPanel);
+                if (config.showDiagnostics())
+                {
+                    add(metricsPanel, 0);
+                }
+                revalidate();
+                repaint();
+            });
+        }
+    }
+
+    private void reconfigureFilter()
+    {
+        if (filter.configure(config))
+        {
+            // The Y being shown changed, so every entry in the Y index is out of date
+            for (WorldStateStore.WorldState row : rowLookup)
+            {
+                if (row != null)
+                {
+                    filter.update(row);
+                }
+            }
+        }
+        applyFilter();
     }
 
-    private void orderBy(WorldOrder order)
+    private static boolean isFilterKey(String key)
+    {
+        switch (key)
+        {
+            case BaWorldScouterConfig.FILTER_REGION:
+            case BaWorldScouterConfig.FILTER_MIN_POPULATION:
+            case BaWorldScouterConfig.FILTER_MAX_POPULATION:
+            case BaWorldScouterConfig.FILTER_MIN_Y:
+            case BaWorldScouterConfig.FILTER_MAX_Y:
+            case BaWorldScouterConfig.FILTER_MAX_AGE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private String getYTitle()
+    {
+        return config.showPredictedValues() || config.estimateY() ? "~Y" : "Y";
+    }
+
+    void orderBy(WorldOrder order)
     {
         yHeader.highlight(false, ascendingOrder);
         worldHeader.highlight(false, ascendingOrder);
@@ -224,14 +546,29 @@ class WorldInfoPanel extends PluginPanel
         updateList();
     }
 
+    private JPanel buildTopPanel()
+    {
+        final JLabel title = new JLabel("Best worlds");
+        title.setFont(FontManager.getRunescapeSmallFont());
+        title.setBorder(new EmptyBorder(2, 5, 2, 5));
+        title.setOpaque(true);
+        title.setBackground(ColorScheme.SCROLL_TRACK_COLOR);
+
+        final JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(new EmptyBorder(0, 0, 5, 0));
+        panel.add(title, BorderLayout.NORTH);
+        panel.add(topView, BorderLayout.CENTER);
+        panel.setVisible(config.topWorldsCount() > 0);
+        return panel;
+    }
+
     private JPanel buildHeader()
     {
         JPanel header = new JPanel(new BorderLayout());
         JPanel leftSide = new JPanel(new BorderLayout());
         JPanel rightSide = new JPanel(new BorderLayout());
 
-        String yTitle = config.showPredictedValues() ? "~Y" : "Y";
-        yHeader = new WorldInfoHeader(yTitle, orderIndex == WorldOrder.INSTANCE_Y, ascendingOrder);
+        yHeader = new WorldInfoHeader(getYTitle(), orderIndex == WorldOrder.INSTANCE_Y, ascendingOrder);
         yHeader.setPreferredSize(new Dimension(Y_COLUMN_WIDTH, 20));
         yHeader.addMouseListener(new MouseAdapter()
         {
@@ -307,7 +644,7 @@ class WorldInfoPanel extends PluginPanel
         return header;
     }
 
-    private enum WorldOrder
+    enum WorldOrder
     {
         WORLD,
         INSTANCE_Y,
@@ -0,0 +1,181 @@
+package rsfost.ba_world_scouter;
+
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.PluginPanel;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * Paints the world list with one shared {@link WorldTableRow}, stamping it only over the rows
+ * that fall inside the clip instead of keeping a component tree per world.
+ */
+class WorldListView extends JComponent
+{
+    private static final Color ODD_ROW = new Color(44, 44, 44);
+    private static final String STALE_TOOLTIP = "Last known data from a previous session";
+    // How often estimated Y values are re-evaluated
+    private static final long ESTIMATE_TICK_MILLIS = 1000;
+
+    private final List<WorldStateStore.WorldState> rows;
+    private final BaWorldScouterConfig config;
+    private final WorldHistory history;
+    private final WorldHistory.Samples samples = new WorldHistory.Samples();
+    private final WorldTableRow renderer = new WorldTableRow();
+    private final CellRendererPane rendererPane = new CellRendererPane();
+    private final WorldTableRow.CellText[] texts = new WorldTableRow.CellText[WorldStateStore.MAX_WORLDS];
+    private final int rowHeight;
+    private final Timer ticker;
+    private long nextTickMillis;
+
+    WorldListView(List<WorldStateStore.WorldState> rows, BaWorldScouterConfig config, WorldHistory history)
+    {
+        this.rows = rows;
+        this.config = config;
+        this.history = history;
+        this.rowHeight = renderer.getPreferredSize().height;
+        this.ticker = new Timer(0, e -> tick());
+        ticker.setRepeats(false);
+
+        add(rendererPane);
+        setOpaque(true);
+        setBackground(ColorScheme.DARK_GRAY_COLOR);
+        ToolTipManager.sharedInstance().registerComponent(this);
+    }
+
+    /**
+     * Call after rows are added, removed or reordered wholesale.
+     */
+    void rowsChanged()
+    {
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Call after the rows between {@code from} and {@code to} (inclusive) changed in place.
+     */
+    void rowsUpdated(int from, int to)
+    {
+        repaint(0, from * rowHeight, getWidth(), (to - from + 1) * rowHeight);
+    }
+
+    /**
+     * Keeps the "last updated" column current while the list is on screen.
+     */
+    void startTicker()
+    {
+        tick();
+    }
+
+    void stopTicker()
+    {
+        ticker.stop();
+    }
+
+    /**
+     * Repaints every row whose text has changed with the passing of time, then sleeps until
+     * the next row is due to roll over to a new minute or estimates are due again.
+     */
+    private void tick()
+    {
+        final boolean predicted = config.showPredictedValues();
+        final boolean estimated = config.estimateY();
+        final long now = System.currentTimeMillis();
+        long next = estimated ? now + ESTIMATE_TICK_MILLIS : Long.MAX_VALUE;
+        for (int i = 0; i < rows.size(); ++i)
+        {
+            final WorldStateStore.WorldState row = rows.get(i);
+            final WorldTableRow.CellText text = texts[row.getWorldId()];
+            if (text == null)
+            {
+                // Not painted yet; it's formatted when it is
+                continue;
+            }
+            if (text.update(row, predicted, estimated, now))
+            {
+                rowsUpdated(i, i);
+            }
+            next = Math.min(next, text.nextTickMillis());
+        }
+
+        scheduleTick(next == Long.MAX_VALUE ? now + 60_000 : next, now);
+    }
+
+    private void scheduleTick(long next, long now)
+    {
+        nextTickMillis = next;
+        ticker.setInitialDelay((int) Math.max(1, next - now));
+        ticker.restart();
+    }
+
+    @Override
+    public Dimension getPreferredSize()
+    {
+        return new Dimension(PluginPanel.PANEL_WIDTH, rows.size() * rowHeight);
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event)
+    {
+        final int index = event.getY() / rowHeight;
+        if (index < 0 || index >= rows.size())
+        {
+            return null;
+        }
+
+        final WorldStateStore.WorldState row = rows.get(index);
+        if (row.isStale())
+        {
+            return STALE_TOOLTIP;
+        }
+        final WorldTableRow.CellText text = texts[row.getWorldId()];
+        if (text != null && text.getConfidence() != null)
+        {
+            return "Estimated Y, " + text.getConfidence().name().toLowerCase() + " confidence";
+        }
+        return null;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g)
+    {
+        final Rectangle clip = g.getClipBounds();
+        final int top = clip == null ? 0 : clip.y;
+        final int bottom = clip == null ? getHeight() : clip.y + clip.height;
+
+        g.setColor(getBackground());
+        g.fillRect(0, top, getWidth(), bottom - top);
+
+        final boolean predicted = config.showPredictedValues();
+        final boolean estimated = config.estimateY();
+        final long now = System.currentTimeMillis();
+        final int first = Math.max(0, top / rowHeight);
+        final int last = Math.min(rows.size() - 1, (bottom - 1) / rowHeight);
+        long next = Long.MAX_VALUE;
+        for (int i = first; i <= last; ++i)
+        {
+            final WorldStateStore.WorldState row = rows.get(i);
+            WorldTableRow.CellText text = texts[row.getWorldId()];
+            if (text == null)
+            {
+                text = new WorldTableRow.CellText(row.getWorldId());
+                texts[row.getWorldId()] = text;
+            }
+            text.update(row, predicted, estimated, now);
+            text.updateSparkline(history, samples);
+            next = Math.min(next, text.nextTickMillis());
+            renderer.configure(row, text, i % 2 == 0 ? ODD_ROW : ColorScheme.DARK_GRAY_COLOR);
+            rendererPane.paintComponent(g, renderer, this, 0, i * rowHeight, getWidth(), rowHeight, true);
+        }
+        rendererPane.removeAll();
+
+        // A row painted for the first time or with new data may roll over before the ticker is due
+        if (ticker.isRunning() && next < nextTickMillis)
+        {
+            scheduleTick(next, now);
+        }
+    }
+}
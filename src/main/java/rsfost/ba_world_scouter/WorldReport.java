@@ -0,0 +1,25 @@
+package rsfost.ba_world_scouter;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Where the local player was seen in an instance, waiting in the {@link WorldReportOutbox}
+ * to be submitted.
+ */
+@Data
+@RequiredArgsConstructor
+class WorldReport
+{
+    private final int worldId;
+    private final int x;
+    private final int y;
+    private final int regionId;
+    private final long observedMillis;
+
+    // Failed submissions so far, and when the next one may be made
+    private int attempts;
+    private long notBeforeMillis;
+    // Whether a submission is in flight. Not saved; a saved report is resent on the next start.
+    private transient volatile boolean sending;
+}
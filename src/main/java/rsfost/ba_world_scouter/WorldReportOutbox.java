@@ -0,0 +1,302 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds position reports until the server has them. Only the latest report per world is
+ * kept, reports are sent in small batches no more often than once per flush interval, and
+ * failed ones are retried with exponential backoff. Anything still pending when the plugin
+ * stops is saved and picked up on the next start, as long as it is still recent. The file
+ * is only ever written from the executor.
+ */
+@Slf4j
+@Singleton
+class WorldReportOutbox
+{
+    private static final File OUTBOX_FILE = new File(new File(RuneLite.RUNELITE_DIR, "ba-world-scouter"), "outbox.json");
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final int MAX_BATCH = 5;
+    private static final long BASE_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    // The server stamps reports with the time it receives them, so an old one would be
+    // recorded as a current position
+    private static final long MAX_AGE_MILLIS = TimeUnit.SECONDS.toMillis(90);
+
+    private final ScheduledExecutorService executor;
+    private final Sender sender;
+    private final Gson gson;
+    private final File file;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<Integer, WorldReport> pending = new ConcurrentHashMap<>();
+    // Serialises writes to the outbox file, in case the executor has more than one thread.
+    // Separate from this, so that offer() never waits on the disk.
+    private final Object fileLock = new Object();
+
+    // Guarded by this
+    private ScheduledFuture<?> flushFuture;
+    private long flushAtMillis;
+    private long lastFlushMillis;
+    private boolean running;
+
+    @Inject
+    WorldReportOutbox(ScheduledExecutorService executor, InstanceInfoService instanceInfoService, Gson gson)
+    {
+        this(executor, instanceInfoService::putInstanceInfo, gson, OUTBOX_FILE, System::currentTimeMillis);
+    }
+
+    WorldReportOutbox(ScheduledExecutorService executor, Sender sender, Gson gson, File file, LongSupplier clock)
+    {
+        this.executor = executor;
+        this.sender = sender;
+        this.gson = gson;
+        this.file = file;
+        this.clock = clock;
+    }
+
+    /**
+     * Restores reports saved by {@link #stop()} and starts sending. Should not be called on
+     * the EDT or the client thread.
+     */
+    void start()
+    {
+        synchronized (this)
+        {
+            running = true;
+        }
+
+        final long now = clock.getAsLong();
+        for (WorldReport report : load())
+        {
+            if (now - report.getObservedMillis() <= MAX_AGE_MILLIS)
+            {
+                report.setNotBeforeMillis(0);
+                report.setSending(false);
+                pending.merge(report.getWorldId(), report, WorldReportOutbox::newer);
+            }
+        }
+        scheduleFlush(now);
+    }
+
+    /**
+     * Stops sending and saves whatever has not been sent, including reports still in flight.
+     * The file is written from the executor, so this is safe to call from the EDT.
+     */
+    void stop()
+    {
+        synchronized (this)
+        {
+            running = false;
+            if (flushFuture != null)
+            {
+                flushFuture.cancel(false);
+                flushFuture = null;
+            }
+        }
+        final WorldReport[] reports = pending.values().toArray(new WorldReport[0]);
+        pending.clear();
+        executor.execute(() -> {
+            synchronized (fileLock)
+            {
+                write(reports);
+            }
+        });
+    }
+
+    /**
+     * Queues a report, replacing any unsent one for the same world. Never blocks on the
+     * network, so it is safe to call from the client thread.
+     */
+    void offer(WorldReport report)
+    {
+        pending.merge(report.getWorldId(), report, WorldReportOutbox::newer);
+        scheduleFlush(clock.getAsLong());
+    }
+
+    int getPendingCount()
+    {
+        return pending.size();
+    }
+
+    private void flush()
+    {
+        final long now = clock.getAsLong();
+        synchronized (this)
+        {
+            flushFuture = null;
+            lastFlushMillis = now;
+        }
+
+        int sent = 0;
+        long nextFlush = Long.MAX_VALUE;
+        for (WorldReport report : pending.values())
+        {
+            if (report.isSending())
+            {
+                continue;
+            }
+            if (now - report.getObservedMillis() > MAX_AGE_MILLIS)
+            {
+                if (pending.remove(report.getWorldId(), report))
+                {
+                    log.debug("Dropping report for world {} after {} attempts", report.getWorldId(), report.getAttempts());
+                }
+                continue;
+            }
+            if (sent == MAX_BATCH || report.getNotBeforeMillis() > now)
+            {
+                nextFlush = Math.min(nextFlush, report.getNotBeforeMillis());
+                continue;
+            }
+            // Kept in the map until the server has it, so stop() saves it if it's in flight.
+            // A report offered meanwhile replaces it and is sent next time.
+            report.setSending(true);
+            sender.send(report,
+                () -> pending.remove(report.getWorldId(), report), () -> retry(report));
+            ++sent;
+        }
+
+        if (nextFlush != Long.MAX_VALUE)
+        {
+            scheduleFlush(nextFlush);
+        }
+    }
+
+    private void retry(WorldReport report)
+    {
+        synchronized (this)
+        {
+            // stop() has already saved it
+            if (!running)
+            {
+                return;
+            }
+        }
+
+        final int attempts = report.getAttempts() + 1;
+        report.setAttempts(attempts);
+        report.setNotBeforeMillis(clock.getAsLong()
+            + Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempts - 1, 10)));
+
+        report.setSending(false);
+
+        // A newer report for the world supersedes this one
+        if (pending.get(report.getWorldId()) == report)
+        {
+            // Persisted now in case the client goes away before the network comes back
+            executor.execute(this::save);
+            scheduleFlush(report.getNotBeforeMillis());
+        }
+    }
+
+    /**
+     * Makes sure a flush happens no later than {@code atMillis}, but no sooner than the flush
+     * interval allows.
+     */
+    private synchronized void scheduleFlush(long atMillis)
+    {
+        if (!running || pending.isEmpty())
+        {
+            return;
+        }
+
+        atMillis = Math.max(atMillis, lastFlushMillis + FLUSH_INTERVAL_MILLIS);
+        if (flushFuture != null && flushAtMillis <= atMillis)
+        {
+            return;
+        }
+        if (flushFuture != null)
+        {
+            flushFuture.cancel(false);
+        }
+        flushAtMillis = atMillis;
+        flushFuture = executor.schedule(this::flush,
+            Math.max(0, atMillis - clock.getAsLong()), TimeUnit.MILLISECONDS);
+    }
+
+    private WorldReport[] load()
+    {
+        if (!file.exists())
+        {
+            return new WorldReport[0];
+        }
+        try
+        {
+            final String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            final WorldReport[] reports = gson.fromJson(json, WorldReport[].class);
+            return reports == null ? new WorldReport[0] : reports;
+        }
+        catch (IOException | JsonParseException e)
+        {
+            log.warn("Unable to load unsent world reports", e);
+            return new WorldReport[0];
+        }
+    }
+
+    private void save()
+    {
+        synchronized (fileLock)
+        {
+            // Once stopped, the reports saved by stop() are the ones to keep
+            synchronized (this)
+            {
+                if (!running)
+                {
+                    return;
+                }
+            }
+            // Taken under the file lock so an older snapshot can't be written last
+            write(pending.values().toArray(new WorldReport[0]));
+        }
+    }
+
+    private void write(WorldReport[] reports)
+    {
+        try
+        {
+            if (reports.length == 0)
+            {
+                Files.deleteIfExists(file.toPath());
+                return;
+            }
+
+            file.getParentFile().mkdirs();
+            final File tmp = new File(file.getPath() + ".tmp");
+            Files.write(tmp.toPath(), gson.toJson(reports).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to save unsent world reports", e);
+        }
+    }
+
+    private static WorldReport newer(WorldReport a, WorldReport b)
+    {
+        return b.getObservedMillis() >= a.getObservedMillis() ? b : a;
+    }
+
+    /**
+     * Submits one report, calling back once the server has it or once it should be retried.
+     */
+    interface Sender
+    {
+        void send(WorldReport report, Runnable onDone, Runnable onRetry);
+    }
+}
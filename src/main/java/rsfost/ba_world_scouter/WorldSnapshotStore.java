@@ -0,0 +1,114 @@
+package rsfost.ba_world_scouter;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Keeps the last known world list on disk so the panel can be filled as soon as the plugin
+ * starts, before anything has been fetched. Every update is written to its world's slot in
+ * a {@link WorldStateFile} as it arrives.
+ */
+@Slf4j
+@Singleton
+class WorldSnapshotStore
+{
+    private static final File SNAPSHOT_DIR = new File(RuneLite.RUNELITE_DIR, "ba-world-scouter");
+    private static final File SNAPSHOT_FILE = new File(SNAPSHOT_DIR, "worlds.bin");
+
+    private final WorldStateStore store;
+    private final WorldStateFile stateFile = new WorldStateFile(SNAPSHOT_FILE);
+    private final WorldStateStore.WorldState state = new WorldStateStore.WorldState();
+
+    @Inject
+    public WorldSnapshotStore(WorldStateStore store)
+    {
+        this.store = store;
+    }
+
+    /**
+     * Restores the saved worlds into the store as stale, skipping any world that already has
+     * data. Should not be called on the EDT.
+     *
+     * @return the number of worlds restored
+     */
+    int load()
+    {
+        final long start = System.nanoTime();
+        try
+        {
+            int restored = 0;
+            List<InstanceInfo> worlds = stateFile.readAll();
+            for (InstanceInfo world : worlds)
+            {
+                if (store.restore(world))
+                {
+                    ++restored;
+                }
+            }
+            log.debug("Restored {} worlds from snapshot in {}us", restored, (System.nanoTime() - start) / 1000);
+            return restored;
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to load world snapshot", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Writes a world's current state to its slot. Safe to call from any thread.
+     */
+    synchronized void put(int worldId)
+    {
+        if (!store.read(worldId, state) || state.isStale())
+        {
+            return;
+        }
+
+        try
+        {
+            stateFile.write(worldId, state.getConfirmedY(), state.getConfirmedTime(),
+                state.getPredictedY(), state.getPredictedTime());
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to save world {} to snapshot", worldId, e);
+        }
+    }
+
+    /**
+     * Empties the slots of worlds the store has dropped, so that they aren't restored as
+     * stale rows on the next start. Should not be called on the EDT.
+     */
+    synchronized void prune()
+    {
+        try
+        {
+            for (int worldId = 1; worldId < WorldStateStore.MAX_WORLDS; ++worldId)
+            {
+                if (!store.isPresent(worldId))
+                {
+                    stateFile.clear(worldId);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to prune world snapshot", e);
+        }
+    }
+
+    /**
+     * Flushes the snapshot to disk. Should not be called on the EDT.
+     */
+    void save()
+    {
+        stateFile.force();
+    }
+}
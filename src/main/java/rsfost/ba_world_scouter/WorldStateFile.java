@@ -0,0 +1,224 @@
+package rsfost.ba_world_scouter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped file of fixed-width world records, one slot per world id. Writing a world
+ * only touches its own slot, and a single world can be read without looking at the others.
+ *
+ * <pre>
+ * header (32 bytes): magic, version, record size, slot count, header crc32, padding
+ * record (32 bytes): world id, confirmed y, confirmed time, predicted y, predicted time,
+ *                    record crc32
+ * </pre>
+ * A slot whose world id is 0 is empty. Times are stored as they come from the server.
+ */
+@Slf4j
+class WorldStateFile
+{
+    private static final int MAGIC = 0x42415753; // "BAWS"
+    // 2 dropped the receive time, which nothing read
+    private static final int VERSION = 2;
+    static final int HEADER_SIZE = 32;
+    private static final int HEADER_CHECKED_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+    private static final int RECORD_CHECKED_SIZE = RECORD_SIZE - 4;
+    private static final int MAX_WORLDS = WorldStateStore.MAX_WORLDS;
+    static final int FILE_SIZE = HEADER_SIZE + MAX_WORLDS * RECORD_SIZE;
+
+    private final File file;
+    private final byte[] scratch = new byte[RECORD_SIZE];
+    private final ByteBuffer scratchBuffer = ByteBuffer.wrap(scratch);
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer buffer;
+
+    WorldStateFile(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Writes one world's slot in place.
+     */
+    synchronized void write(int worldId, int confirmedY, long confirmedTime, int predictedY, long predictedTime)
+        throws IOException
+    {
+        if (worldId <= 0 || worldId >= MAX_WORLDS)
+        {
+            return;
+        }
+
+        scratchBuffer.clear();
+        scratchBuffer.putInt(worldId);
+        scratchBuffer.putInt(confirmedY);
+        scratchBuffer.putLong(confirmedTime);
+        scratchBuffer.putInt(predictedY);
+        scratchBuffer.putLong(predictedTime);
+        crc.reset();
+        crc.update(scratch, 0, RECORD_CHECKED_SIZE);
+        scratchBuffer.putInt((int) crc.getValue());
+
+        final MappedByteBuffer buffer = map();
+        buffer.position(HEADER_SIZE + worldId * RECORD_SIZE);
+        buffer.put(scratch);
+    }
+
+    /**
+     * Empties one world's slot, if it isn't already.
+     */
+    synchronized void clear(int worldId) throws IOException
+    {
+        if (worldId <= 0 || worldId >= MAX_WORLDS)
+        {
+            return;
+        }
+
+        final MappedByteBuffer buffer = map();
+        final int offset = HEADER_SIZE + worldId * RECORD_SIZE;
+        if (buffer.getInt(offset) == 0)
+        {
+            return;
+        }
+        for (int i = 0; i < RECORD_SIZE; ++i)
+        {
+            buffer.put(offset + i, (byte) 0);
+        }
+    }
+
+    /**
+     * Reads a single world's slot.
+     *
+     * @return the world, or null if its slot is empty or corrupt
+     */
+    synchronized InstanceInfo read(int worldId) throws IOException
+    {
+        if (worldId <= 0 || worldId >= MAX_WORLDS)
+        {
+            return null;
+        }
+
+        final MappedByteBuffer buffer = map();
+        buffer.position(HEADER_SIZE + worldId * RECORD_SIZE);
+        buffer.get(scratch);
+
+        scratchBuffer.clear();
+        if (scratchBuffer.getInt(0) != worldId)
+        {
+            return null;
+        }
+        crc.reset();
+        crc.update(scratch, 0, RECORD_CHECKED_SIZE);
+        if (scratchBuffer.getInt(RECORD_CHECKED_SIZE) != (int) crc.getValue())
+        {
+            log.debug("Discarding corrupt record for world {}", worldId);
+            return null;
+        }
+
+        final int confirmedY = scratchBuffer.getInt(4);
+        final long confirmedTime = scratchBuffer.getLong(8);
+        final int predictedY = scratchBuffer.getInt(16);
+        final long predictedTime = scratchBuffer.getLong(20);
+        return new InstanceInfo(worldId,
+            new InstanceInfo.Coord(confirmedTime, confirmedY),
+            new InstanceInfo.Coord(predictedTime, predictedY),
+            confirmedTime);
+    }
+
+    synchronized List<InstanceInfo> readAll() throws IOException
+    {
+        final List<InstanceInfo> worlds = new ArrayList<>();
+        for (int worldId = 1; worldId < MAX_WORLDS; ++worldId)
+        {
+            final InstanceInfo instanceInfo = read(worldId);
+            if (instanceInfo != null)
+            {
+                worlds.add(instanceInfo);
+            }
+        }
+        return worlds;
+    }
+
+    /**
+     * Flushes written slots to disk.
+     */
+    synchronized void force()
+    {
+        if (buffer != null)
+        {
+            buffer.force();
+        }
+    }
+
+    private MappedByteBuffer map() throws IOException
+    {
+        if (buffer != null)
+        {
+            return buffer;
+        }
+
+        file.getParentFile().mkdirs();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            final boolean valid = raf.length() == FILE_SIZE;
+            if (!valid)
+            {
+                raf.setLength(0);
+                raf.setLength(FILE_SIZE);
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        }
+
+        if (!isHeaderValid())
+        {
+            log.debug("Initializing world state file {}", file);
+            for (int i = 0; i < FILE_SIZE; ++i)
+            {
+                buffer.put(i, (byte) 0);
+            }
+            writeHeader();
+        }
+        return buffer;
+    }
+
+    private boolean isHeaderValid()
+    {
+        if (buffer.getInt(0) != MAGIC
+            || buffer.getInt(4) != VERSION
+            || buffer.getInt(8) != RECORD_SIZE
+            || buffer.getInt(12) != MAX_WORLDS)
+        {
+            return false;
+        }
+        return buffer.getInt(HEADER_CHECKED_SIZE) == headerChecksum();
+    }
+
+    private void writeHeader()
+    {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_SIZE);
+        buffer.putInt(12, MAX_WORLDS);
+        buffer.putInt(HEADER_CHECKED_SIZE, headerChecksum());
+    }
+
+    private int headerChecksum()
+    {
+        crc.reset();
+        for (int i = 0; i < HEADER_CHECKED_SIZE; ++i)
+        {
+            crc.update(buffer.get(i));
+        }
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,260 @@
+package rsfost.ba_world_scouter;
+
+import lombok.Getter;
+import net.runelite.http.api.worlds.WorldRegion;
+
+import javax.inject.Singleton;
+import java.lang.invoke.VarHandle;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The current state of every world, kept in primitive columns indexed directly by world id.
+ *
+ * <p>Writers are serialized on the store. Readers don't lock: each world has a sequence
+ * number that is odd while the world is being written, and {@link #read(int, WorldState)}
+ * retries until it sees the same even number before and after copying the columns.</p>
+ */
+@Singleton
+class WorldStateStore
+{
+    static final int MAX_WORLDS = 1024;
+    // Bits a world id takes up when packed into the low end of a sort key
+    static final int WORLD_ID_BITS = Integer.numberOfTrailingZeros(MAX_WORLDS);
+    static final long WORLD_ID_MASK = (1L << WORLD_ID_BITS) - 1;
+    static final int UNKNOWN = -1;
+
+    private static final WorldRegion[] REGIONS = WorldRegion.values();
+
+    private final AtomicIntegerArray versions = new AtomicIntegerArray(MAX_WORLDS);
+    private final boolean[] present = new boolean[MAX_WORLDS];
+    private final boolean[] stale = new boolean[MAX_WORLDS];
+    private final int[] confirmedY = new int[MAX_WORLDS];
+    private final long[] confirmedTime = new long[MAX_WORLDS];
+    // The confirmed position before the current one, kept as history for extrapolation
+    private final int[] previousY = new int[MAX_WORLDS];
+    private final long[] previousTime = new long[MAX_WORLDS];
+    private final int[] predictedY = new int[MAX_WORLDS];
+    private final long[] predictedTime = new long[MAX_WORLDS];
+    private final int[] population = new int[MAX_WORLDS];
+    private final int[] region = new int[MAX_WORLDS];
+    private final int[] location = new int[MAX_WORLDS];
+
+    WorldStateStore()
+    {
+        for (int i = 0; i < MAX_WORLDS; ++i)
+        {
+            population[i] = UNKNOWN;
+            region[i] = UNKNOWN;
+            location[i] = UNKNOWN;
+        }
+    }
+
+    static boolean isValidWorld(int worldId)
+    {
+        return worldId > 0 && worldId < MAX_WORLDS;
+    }
+
+    /**
+     * Records instance coordinates received from the server.
+     */
+    synchronized void update(int worldId, int confirmedY, long confirmedTime, int predictedY, long predictedTime)
+    {
+        if (isValidWorld(worldId))
+        {
+            write(worldId, false, confirmedY, confirmedTime, predictedY, predictedTime);
+        }
+    }
+
+    void update(InstanceInfo instanceInfo)
+    {
+        update(instanceInfo.getWorldId(),
+            instanceInfo.getConfirmed().getY(), instanceInfo.getConfirmed().getTime(),
+            instanceInfo.getPrediction().getY(), instanceInfo.getPrediction().getTime());
+    }
+
+    /**
+     * Records coordinates from a previous session, unless the world already has newer ones.
+     *
+     * @return true if the world was restored
+     */
+    synchronized boolean restore(InstanceInfo instanceInfo)
+    {
+        final int worldId = instanceInfo.getWorldId();
+        if (!isValidWorld(worldId) || present[worldId])
+        {
+            return false;
+        }
+
+        write(worldId, true,
+            instanceInfo.getConfirmed().getY(), instanceInfo.getConfirmed().getTime(),
+            instanceInfo.getPrediction().getY(), instanceInfo.getPrediction().getTime());
+        return true;
+    }
+
+    /**
+     * Forgets every world that isn't in {@code worldIds}.
+     */
+    synchronized void retain(BitSet worldIds)
+    {
+        for (int worldId = 1; worldId < MAX_WORLDS; ++worldId)
+        {
+            if (present[worldId] && !worldIds.get(worldId))
+            {
+                beginWrite(worldId);
+                present[worldId] = false;
+                endWrite(worldId);
+            }
+        }
+    }
+
+    /**
+     * Records details from the game's world list.
+     *
+     * @return whether anything changed
+     */
+    synchronized boolean setWorldDetails(int worldId, int population, WorldRegion region)
+    {
+        final int regionOrdinal = region == null ? UNKNOWN : region.ordinal();
+        if (!isValidWorld(worldId)
+            || (this.population[worldId] == population && this.region[worldId] == regionOrdinal))
+        {
+            return false;
+        }
+
+        beginWrite(worldId);
+        this.population[worldId] = population;
+        this.region[worldId] = regionOrdinal;
+        endWrite(worldId);
+        return true;
+    }
+
+    /**
+     * @return whether the location changed
+     */
+    synchronized boolean setLocation(int worldId, int location)
+    {
+        if (!isValidWorld(worldId) || this.location[worldId] == location)
+        {
+            return false;
+        }
+
+        beginWrite(worldId);
+        this.location[worldId] = location;
+        endWrite(worldId);
+        return true;
+    }
+
+    /**
+     * Copies a world's state into {@code out} without locking.
+     *
+     * @return false if the store has no coordinates for the world
+     */
+    boolean read(int worldId, WorldState out)
+    {
+        if (!isValidWorld(worldId))
+        {
+            return false;
+        }
+
+        while (true)
+        {
+            final int version = versions.get(worldId);
+            if ((version & 1) != 0)
+            {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            out.worldId = worldId;
+            out.present = present[worldId];
+            out.stale = stale[worldId];
+            out.confirmedY = confirmedY[worldId];
+            out.confirmedTime = confirmedTime[worldId];
+            out.previousY = previousY[worldId];
+            out.previousTime = previousTime[worldId];
+            out.predictedY = predictedY[worldId];
+            out.predictedTime = predictedTime[worldId];
+            out.population = population[worldId];
+            final int regionOrdinal = region[worldId];
+            out.region = regionOrdinal == UNKNOWN ? null : REGIONS[regionOrdinal];
+            out.location = location[worldId];
+
+            VarHandle.loadLoadFence();
+            if (versions.get(worldId) == version)
+            {
+                return out.present;
+            }
+        }
+    }
+
+    boolean isPresent(int worldId)
+    {
+        if (!isValidWorld(worldId))
+        {
+            return false;
+        }
+        // Volatile read so the latest completed write is visible
+        versions.get(worldId);
+        return present[worldId];
+    }
+
+    private void write(int worldId, boolean stale, int confirmedY, long confirmedTime, int predictedY, long predictedTime)
+    {
+        beginWrite(worldId);
+        if (!present[worldId] || stale)
+        {
+            previousTime[worldId] = 0;
+        }
+        else if (confirmedTime > this.confirmedTime[worldId])
+        {
+            previousY[worldId] = this.confirmedY[worldId];
+            previousTime[worldId] = this.confirmedTime[worldId];
+        }
+        this.present[worldId] = true;
+        this.stale[worldId] = stale;
+        this.confirmedY[worldId] = confirmedY;
+        this.confirmedTime[worldId] = confirmedTime;
+        this.predictedY[worldId] = predictedY;
+        this.predictedTime[worldId] = predictedTime;
+        endWrite(worldId);
+    }
+
+    private void beginWrite(int worldId)
+    {
+        versions.incrementAndGet(worldId);
+        // The column writes must not become visible before the version is odd
+        VarHandle.storeStoreFence();
+    }
+
+    private void endWrite(int worldId)
+    {
+        versions.incrementAndGet(worldId);
+    }
+
+    /**
+     * A reusable copy of one world's state.
+     */
+    @Getter
+    static class WorldState
+    {
+        private int worldId;
+        private boolean present;
+        private boolean stale;
+        private int confirmedY;
+        private long confirmedTime;
+        // Zero if there is no earlier confirmed position
+        private long previousTime;
+        private int previousY;
+        private int predictedY;
+        private long predictedTime;
+        private int population = UNKNOWN;
+        private WorldRegion region;
+        private int location = UNKNOWN;
+
+        int getY(boolean predicted)
+        {
+            return predicted ? predictedY : confirmedY;
+        }
+    }
+}
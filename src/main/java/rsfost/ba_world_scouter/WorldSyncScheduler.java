@@ -0,0 +1,124 @@
+package rsfost.ba_world_scouter;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Decides when to poll the full world list. While the world stream is delivering updates a
+ * poll is only a rare consistency check; while it is down the list is polled quickly instead.
+ */
+@Slf4j
+class WorldSyncScheduler
+{
+    private static final long TICK_SECONDS = 10;
+    private static final long FAST_POLL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long CONSISTENCY_POLL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // A connected stream that has been silent for this long is treated as down
+    private static final long STREAM_SILENCE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // Every n-th fast poll fetches the whole list rather than only the worlds that changed
+    private static final int FULL_SYNC_POLLS = 10;
+
+    private final ScheduledExecutorService executor;
+    private final InstanceInfoService instanceInfoService;
+    private final Consumer<Boolean> sync;
+    private final ScouterMetrics metrics;
+
+    private ScheduledFuture<?> future;
+    @Getter
+    private volatile boolean streamHealthy;
+    @Getter
+    private volatile long lastPollMillis;
+    private int fastPolls;
+
+    /**
+     * @param sync performs a poll. Its argument says whether to fetch the whole list.
+     */
+    WorldSyncScheduler(ScheduledExecutorService executor, InstanceInfoService instanceInfoService,
+        Consumer<Boolean> sync, ScouterMetrics metrics)
+    {
+        this.executor = executor;
+        this.instanceInfoService = instanceInfoService;
+        this.sync = sync;
+        this.metrics = metrics;
+    }
+
+    void start()
+    {
+        stop();
+        streamHealthy = false;
+        lastPollMillis = 0;
+        fastPolls = 0;
+        metrics.recordSyncSchedule(streamHealthy, getPollIntervalMillis());
+        future = executor.scheduleWithFixedDelay(this::tick, TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    void stop()
+    {
+        if (future != null)
+        {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    long getPollIntervalMillis()
+    {
+        return streamHealthy ? CONSISTENCY_POLL_MILLIS : FAST_POLL_MILLIS;
+    }
+
+    String getStatus()
+    {
+        final long lastEvent = instanceInfoService.getLastEventMillis();
+        return String.format("stream %s, last event %s, %d failures, polling every %ds",
+            instanceInfoService.getStreamState().name().toLowerCase(),
+            lastEvent == 0 ? "never" : (System.currentTimeMillis() - lastEvent) / 1000 + "s ago",
+            instanceInfoService.getSseFailCount(),
+            getPollIntervalMillis() / 1000);
+    }
+
+    private void tick()
+    {
+        try
+        {
+            final long now = System.currentTimeMillis();
+            final boolean healthy = isStreamHealthy(now);
+            if (healthy != streamHealthy)
+            {
+                streamHealthy = healthy;
+                metrics.recordSyncSchedule(healthy, getPollIntervalMillis());
+                log.debug("World sync schedule changed: {}", getStatus());
+            }
+
+            if (lastPollMillis != 0 && now - lastPollMillis < getPollIntervalMillis())
+            {
+                return;
+            }
+
+            final boolean fullSync = lastPollMillis == 0 || healthy || ++fastPolls % FULL_SYNC_POLLS == 0;
+            lastPollMillis = now;
+            metrics.recordSyncPoll(fullSync, now);
+            sync.accept(fullSync);
+        }
+        catch (RuntimeException e)
+        {
+            // an exception would otherwise cancel all future ticks
+            log.error("Error scheduling world sync", e);
+        }
+    }
+
+    private boolean isStreamHealthy(long now)
+    {
+        if (!instanceInfoService.isStreamConnected())
+        {
+            return false;
+        }
+        final long lastEvent = instanceInfoService.getLastEventMillis();
+        final long connectedAt = instanceInfoService.getStreamConnectedMillis();
+        return now - Math.max(lastEvent, connectedAt) < STREAM_SILENCE_MILLIS;
+    }
+}
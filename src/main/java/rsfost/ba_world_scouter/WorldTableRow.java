@@ -26,20 +26,19 @@
 package rsfost.ba_world_scouter;
 
 import lombok.Getter;
-import lombok.Setter;
+import net.runelite.client.ui.ColorScheme;
 import net.runelite.client.ui.FontManager;
 import net.runelite.client.util.ImageUtil;
-import net.runelite.http.api.worlds.World;
 import net.runelite.http.api.worlds.WorldRegion;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
-import java.time.Duration;
-import java.time.Instant;
+import java.awt.image.BufferedImage;
 
 /**
- * Borrows heavily from World Hopper plugin
+ * Borrows heavily from World Hopper plugin. A single instance is shared by {@link WorldListView}
+ * to stamp out every visible row.
  */
 class WorldTableRow extends JPanel
 {
@@ -65,28 +64,55 @@ class WorldTableRow extends JPanel
         FLAG_GER = new ImageIcon(ImageUtil.loadImageResource(BaWorldScouterPlugin.class, "flag_ger.png"));
     }
 
-    private static final int LOCATION_US_WEST = -73;
-    private static final int LOCATION_US_EAST = -42;
+    private static final Color STALE_COLOR = ColorScheme.MEDIUM_GRAY_COLOR;
+    private static final Color MEDIUM_CONFIDENCE_COLOR = ColorScheme.PROGRESS_INPROGRESS_COLOR;
+    private static final Color LOW_CONFIDENCE_COLOR = ColorScheme.PROGRESS_ERROR_COLOR;
+    private static final Color SPARKLINE_COLOR = ColorScheme.MEDIUM_GRAY_COLOR;
+    private static final Color SPARKLINE_PREDICTION_COLOR = ColorScheme.BRAND_ORANGE.darker();
 
-    private final BaWorldScouterConfig config;
+    // Translucent, since it sits under the last updated text
+    private static final AlphaComposite SPARKLINE_COMPOSITE = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f);
+    private static final int SPARKLINE_WIDTH = 64;
+    private static final int SPARKLINE_HEIGHT = 14;
 
-    @Getter @Setter
-    private InstanceInfo instanceInfo;
+    private static final int LOCATION_US_WEST = -73;
+    private static final int LOCATION_US_EAST = -42;
 
+    private JLabel flagField;
     private JLabel worldField;
     private JLabel yField;
     private JLabel popField;
     private JLabel lastUpdatedField;
+    private BufferedImage sparkline;
+    private final Color defaultForeground;
 
-    public WorldTableRow(InstanceInfo instanceInfo, BaWorldScouterConfig config)
+    public WorldTableRow()
     {
-        this.instanceInfo = instanceInfo;
-        this.config = config;
         setLayout(new BorderLayout());
         setBorder(new EmptyBorder(2, 0, 2, 0));
 
         JPanel leftSide = new JPanel(new BorderLayout());
-        JPanel rightSide = new JPanel(new BorderLayout());
+        // The Y history is drawn faintly behind the last updated column, which has no room beside it
+        JPanel rightSide = new JPanel(new BorderLayout())
+        {
+            @Override
+            protected void paintComponent(Graphics g)
+            {
+                if (sparkline != null)
+                {
+                    final Graphics2D g2 = (Graphics2D) g.create();
+                    try
+                    {
+                        g2.setComposite(SPARKLINE_COMPOSITE);
+                        g2.drawImage(sparkline, 5, (getHeight() - SPARKLINE_HEIGHT) / 2, null);
+                    }
+                    finally
+                    {
+                        g2.dispose();
+                    }
+                }
+            }
+        };
         leftSide.setOpaque(false);
         rightSide.setOpaque(false);
 
@@ -114,6 +140,46 @@ class WorldTableRow extends JPanel
         add(leftSide, BorderLayout.WEST);
         add(rightSide, BorderLayout.CENTER);
 
+        defaultForeground = this.yField.getForeground();
+    }
+
+    /**
+     * Points the renderer at one world before it is painted. The text must already be
+     * up to date for the state.
+     */
+    void configure(WorldStateStore.WorldState state, CellText text, Color background)
+    {
+        setBackground(background);
+
+        // Rows restored from a previous session are greyed out until the server sends fresh data
+        final Color foreground = state.isStale() ? STALE_COLOR : defaultForeground;
+        worldField.setForeground(foreground);
+        yField.setForeground(state.isStale() ? STALE_COLOR : getConfidenceColor(text.confidence));
+        popField.setForeground(foreground);
+        lastUpdatedField.setForeground(foreground);
+
+        final ImageIcon flag = getFlag(state.getRegion(), state.getLocation());
+        flagField.setIcon(flag);
+        flagField.setVisible(flag != null);
+
+        worldField.setText(text.world);
+        yField.setText(text.y);
+        popField.setText(text.population);
+        lastUpdatedField.setText(text.lastUpdated);
+        sparkline = text.sparkline;
+    }
+
+    /**
+     * The renderer is never showing, so there is nothing to schedule.
+     */
+    @Override
+    public void revalidate()
+    {
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height)
+    {
     }
 
     private JPanel buildWorldField()
@@ -121,19 +187,10 @@ class WorldTableRow extends JPanel
         JPanel column = new JPanel(new BorderLayout(7, 0));
         column.setBorder(new EmptyBorder(0, 5, 0, 5));
 
-        worldField = new JLabel(Integer.toString(instanceInfo.getWorldId()));
-
-        World world = instanceInfo.getWorld();
-        if (world != null)
-        {
-            ImageIcon flagIcon = getFlag(instanceInfo.getWorld().getRegion(), instanceInfo.getWorldLocation());
-            if (flagIcon != null)
-            {
-                JLabel flag = new JLabel(flagIcon);
-                column.add(flag, BorderLayout.WEST);
-            }
-        }
+        worldField = new JLabel();
+        flagField = new JLabel();
 
+        column.add(flagField, BorderLayout.WEST);
         column.add(worldField, BorderLayout.CENTER);
 
         return column;
@@ -144,19 +201,7 @@ class WorldTableRow extends JPanel
         JPanel column = new JPanel(new BorderLayout());
         column.setBorder(new EmptyBorder(0, 5, 0, 5));
 
-        yField = new JLabel() {
-            @Override
-            public String getText() {
-                if (config.showPredictedValues())
-                {
-                    return formatInt(instanceInfo.getPrediction().getY());
-                }
-                else
-                {
-                    return formatInt(instanceInfo.getConfirmed().getY());
-                }
-            }
-        };
+        yField = new JLabel();
         yField.setFont(FontManager.getRunescapeSmallFont());
 
         column.add(yField, BorderLayout.EAST);
@@ -169,15 +214,7 @@ class WorldTableRow extends JPanel
         JPanel column = new JPanel(new BorderLayout());
         column.setBorder(new EmptyBorder(0, 5, 0, 5));
 
-        if (instanceInfo.getWorld() != null)
-        {
-            popField = new JLabel(Integer.toString(instanceInfo.getWorld().getPlayers()));
-        }
-        else
-        {
-            popField = new JLabel("?");
-        }
-
+        popField = new JLabel();
         popField.setFont(FontManager.getRunescapeSmallFont());
 
         column.add(popField, BorderLayout.EAST);
@@ -190,19 +227,62 @@ class WorldTableRow extends JPanel
         JPanel column = new JPanel(new BorderLayout());
         column.setBorder(new EmptyBorder(0, 5, 0, 5));
 
-        lastUpdatedField = new JLabel() {
-            @Override
-            public String getText() {
-                return formatTime(instanceInfo.getTime());
-            }
-        };
+        lastUpdatedField = new JLabel();
         lastUpdatedField.setFont(FontManager.getRunescapeSmallFont());
         column.add(lastUpdatedField, BorderLayout.EAST);
 
         return column;
     }
 
+    private Color getConfidenceColor(WorldYEstimator.Confidence confidence)
+    {
+        if (confidence == null)
+        {
+            return defaultForeground;
+        }
+
+        switch (confidence)
+        {
+            case MEDIUM:
+                return MEDIUM_CONFIDENCE_COLOR;
+            case LOW:
+                return LOW_CONFIDENCE_COLOR;
+            default:
+                return defaultForeground;
+        }
+    }
+
     private static ImageIcon getFlag(WorldRegion region, int worldLocation)
+    {
+        final Flag flag = getFlagRegion(region, worldLocation);
+        if (flag == null)
+        {
+            return null;
+        }
+
+        switch (flag)
+        {
+            case US_WEST:
+                return FLAG_US_WEST;
+            case US_EAST:
+                return FLAG_US_EAST;
+            case US:
+                return FLAG_US;
+            case UK:
+                return FLAG_UK;
+            case AUSTRALIA:
+                return FLAG_AUS;
+            case GERMANY:
+                return FLAG_GER;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Which flag a world is shown with, or null if it has none.
+     */
+    static Flag getFlagRegion(WorldRegion region, int worldLocation)
     {
         if (region == null)
         {
@@ -215,29 +295,87 @@ class WorldTableRow extends JPanel
                 switch (worldLocation)
                 {
                     case LOCATION_US_WEST:
-                        return FLAG_US_WEST;
+                        return Flag.US_WEST;
                     case LOCATION_US_EAST:
-                        return FLAG_US_EAST;
+                        return Flag.US_EAST;
                     default:
-                        return FLAG_US;
+                        return Flag.US;
                 }
             case UNITED_KINGDOM:
-                return FLAG_UK;
+                return Flag.UK;
             case AUSTRALIA:
-                return FLAG_AUS;
+                return Flag.AUSTRALIA;
             case GERMANY:
-                return FLAG_GER;
+                return Flag.GERMANY;
             default:
                 return null;
         }
     }
 
-    private static String formatTime(long time)
+    /**
+     * Plots confirmed samples as a line and predictions as dots, scaled to fill the image.
+     */
+    private static void drawSparkline(BufferedImage image, WorldHistory.Samples samples)
     {
-        Instant timestamp = Instant.ofEpochSecond(time);
-        Instant now = Instant.now();
-        long minutes = Duration.between(timestamp, now).toMinutes();
+        final Graphics2D g = image.createGraphics();
+        try
+        {
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setComposite(AlphaComposite.SrcOver);
+
+            final int size = samples.getSize();
+            if (size < 2)
+            {
+                return;
+            }
+
+            final long[] times = samples.getTimes();
+            final int[] ys = samples.getYs();
+            long minTime = Long.MAX_VALUE;
+            long maxTime = Long.MIN_VALUE;
+            int minY = Integer.MAX_VALUE;
+            int maxY = Integer.MIN_VALUE;
+            for (int i = 0; i < size; ++i)
+            {
+                minTime = Math.min(minTime, times[i]);
+                maxTime = Math.max(maxTime, times[i]);
+                minY = Math.min(minY, ys[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            final double xScale = (double) (image.getWidth() - 2) / Math.max(1, maxTime - minTime);
+            final double yScale = (double) (image.getHeight() - 2) / Math.max(1, maxY - minY);
+
+            int lastX = -1;
+            int lastY = -1;
+            for (int i = 0; i < size; ++i)
+            {
+                final int x = (int) ((times[i] - minTime) * xScale);
+                final int y = image.getHeight() - 2 - (int) ((ys[i] - minY) * yScale);
+                if (samples.getPredicted()[i])
+                {
+                    g.setColor(SPARKLINE_PREDICTION_COLOR);
+                    g.fillRect(x, y, 2, 2);
+                    continue;
+                }
 
+                g.setColor(SPARKLINE_COLOR);
+                if (lastX >= 0)
+                {
+                    g.drawLine(lastX, lastY, x, y);
+                }
+                lastX = x;
+                lastY = y;
+            }
+        }
+        finally
+        {
+            g.dispose();
+        }
+    }
+
+    private static String formatTime(long minutes)
+    {
         if (minutes == 0)
         {
             return "Just now";
@@ -256,4 +394,129 @@ class WorldTableRow extends JPanel
     {
         return String.format("%d.%dk", a / 1000, (a % 1000) / 100);
     }
+
+    /**
+     * The formatted text of one world's cells. Each string is rebuilt only when the value
+     * it shows changes, so painting an unchanged row doesn't format anything.
+     */
+    static class CellText
+    {
+        private static final long MILLIS_PER_MINUTE = 60_000;
+
+        private final int worldId;
+        private final String world;
+        private int yValue;
+        private String y;
+        @Getter
+        private WorldYEstimator.Confidence confidence;
+        private int populationValue;
+        private String population;
+        private long lastUpdatedMillis;
+        private long minutes;
+        private String lastUpdated;
+        private BufferedImage sparkline;
+        private int sparklineVersion;
+
+        CellText(int worldId)
+        {
+            this.worldId = worldId;
+            this.world = Integer.toString(worldId);
+        }
+
+        /**
+         * Redraws the Y history sparkline if the world has gained samples since it was last drawn.
+         *
+         * @param samples scratch space for reading the history
+         */
+        void updateSparkline(WorldHistory history, WorldHistory.Samples samples)
+        {
+            if (sparkline != null && sparklineVersion == history.getVersion(worldId))
+            {
+                return;
+            }
+
+            sparklineVersion = history.read(worldId, samples);
+            if (sparkline == null)
+            {
+                sparkline = new BufferedImage(SPARKLINE_WIDTH, SPARKLINE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            }
+            drawSparkline(sparkline, samples);
+        }
+
+        /**
+         * Brings the text in line with the state, which covers new data for the world, the
+         * passing of time and changes to how Y is shown.
+         *
+         * @return whether any text changed
+         */
+        boolean update(WorldStateStore.WorldState state, boolean predicted, boolean estimated, long nowMillis)
+        {
+            boolean changed = false;
+
+            final int yValue;
+            final WorldYEstimator.Confidence confidence;
+            if (estimated)
+            {
+                yValue = WorldYEstimator.estimateY(state, nowMillis);
+                confidence = WorldYEstimator.confidence(state, nowMillis);
+            }
+            else
+            {
+                yValue = state.getY(predicted);
+                confidence = null;
+            }
+            if (y == null || this.yValue != yValue)
+            {
+                this.yValue = yValue;
+                y = formatInt(yValue);
+                changed = true;
+            }
+            if (this.confidence != confidence)
+            {
+                this.confidence = confidence;
+                changed = true;
+            }
+
+            final int populationValue = state.getPopulation();
+            if (population == null || this.populationValue != populationValue)
+            {
+                this.populationValue = populationValue;
+                population = populationValue == WorldStateStore.UNKNOWN ? "?" : Integer.toString(populationValue);
+                changed = true;
+            }
+
+            final long lastUpdatedMillis = state.getConfirmedTime() * 1000;
+            final long minutes = (nowMillis - lastUpdatedMillis) / MILLIS_PER_MINUTE;
+            if (lastUpdated == null || this.lastUpdatedMillis != lastUpdatedMillis || this.minutes != minutes)
+            {
+                this.lastUpdatedMillis = lastUpdatedMillis;
+                this.minutes = minutes;
+                lastUpdated = formatTime(minutes);
+                changed = true;
+            }
+
+            return changed;
+        }
+
+        /**
+         * The time at which the "last updated" text next changes.
+         */
+        long nextTickMillis()
+        {
+            // Minutes truncate toward zero, so timestamps from the future count up to zero instead
+            return minutes < 0
+                ? lastUpdatedMillis + minutes * MILLIS_PER_MINUTE + 1
+                : lastUpdatedMillis + (minutes + 1) * MILLIS_PER_MINUTE;
+        }
+    }
+
+    enum Flag
+    {
+        US,
+        US_WEST,
+        US_EAST,
+        UK,
+        AUSTRALIA,
+        GERMANY
+    }
 }
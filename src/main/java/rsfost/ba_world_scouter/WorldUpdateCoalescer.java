@@ -0,0 +1,116 @@
+package rsfost.ba_world_scouter;
+
+import javax.swing.*;
+import java.util.BitSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Sits between the stream reader and the EDT. Updates are already in the
+ * {@link WorldStateStore}, so only the ids of worlds that changed are kept, and they are
+ * handed to the EDT as a single batch at most once per interval.
+ */
+class WorldUpdateCoalescer
+{
+    private final ScheduledExecutorService executor;
+    private final IntSupplier intervalMillis;
+    private final Consumer<BitSet> batchConsumer;
+    private final ScouterMetrics metrics;
+
+    // Guarded by lock. The two sets are swapped on each drain so neither side allocates.
+    private BitSet pending = new BitSet(WorldStateStore.MAX_WORLDS);
+    private BitSet draining = new BitSet(WorldStateStore.MAX_WORLDS);
+    private final Object lock = new Object();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private volatile boolean running = true;
+
+    /**
+     * @param batchConsumer called on the EDT with the ids of the worlds that changed. The set
+     *                      is reused once the call returns.
+     */
+    WorldUpdateCoalescer(ScheduledExecutorService executor, IntSupplier intervalMillis,
+        Consumer<BitSet> batchConsumer, ScouterMetrics metrics)
+    {
+        this.executor = executor;
+        this.intervalMillis = intervalMillis;
+        this.batchConsumer = batchConsumer;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Queues a world whose state changed. Safe to call from any thread.
+     */
+    void offer(int worldId)
+    {
+        if (!running || !WorldStateStore.isValidWorld(worldId))
+        {
+            return;
+        }
+
+        final boolean alreadyPending;
+        synchronized (lock)
+        {
+            alreadyPending = pending.get(worldId);
+            pending.set(worldId);
+        }
+        metrics.recordUpdateOffered(alreadyPending);
+
+        if (drainScheduled.compareAndSet(false, true))
+        {
+            executor.schedule(this::queueDrain, intervalMillis.getAsInt(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void stop()
+    {
+        running = false;
+        synchronized (lock)
+        {
+            pending.clear();
+        }
+    }
+
+    private void queueDrain()
+    {
+        final long queuedNanos = System.nanoTime();
+        SwingUtilities.invokeLater(() -> {
+            metrics.recordEdtQueueDelay(System.nanoTime() - queuedNanos);
+            drain();
+        });
+    }
+
+    private void drain()
+    {
+        // Cleared before taking the batch so an update arriving mid-drain schedules another one
+        drainScheduled.set(false);
+
+        final BitSet batch;
+        synchronized (lock)
+        {
+            if (pending.isEmpty())
+            {
+                return;
+            }
+            batch = pending;
+            pending = draining;
+            draining = batch;
+        }
+
+        try
+        {
+            if (running)
+            {
+                metrics.recordUpdateBatch(batch.cardinality());
+                batchConsumer.accept(batch);
+            }
+        }
+        finally
+        {
+            batch.clear();
+        }
+    }
+}
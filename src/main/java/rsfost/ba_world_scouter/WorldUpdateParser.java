@@ -0,0 +1,337 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.stream.MalformedJsonException;
+import lombok.Getter;
+import okio.Buffer;
+import okio.ByteString;
+
+import java.io.IOException;
+
+/**
+ * Parses a single streamed world update straight from the event's bytes into primitive
+ * fields, so a stream event can be applied to the {@link WorldStateStore} without
+ * allocating. Fields other than the ones in {@link InstanceInfo} are skipped.
+ */
+class WorldUpdateParser
+{
+    private static final ByteString FIELD_WORLD_ID = ByteString.encodeUtf8("worldId");
+    private static final ByteString FIELD_CONFIRMED = ByteString.encodeUtf8("confirmed");
+    private static final ByteString FIELD_PREDICTION = ByteString.encodeUtf8("prediction");
+    private static final ByteString FIELD_TIME = ByteString.encodeUtf8("time");
+    private static final ByteString FIELD_Y = ByteString.encodeUtf8("y");
+
+    @Getter
+    private int worldId;
+    @Getter
+    private int confirmedY;
+    @Getter
+    private long confirmedTime;
+    @Getter
+    private int predictedY;
+    @Getter
+    private long predictedTime;
+
+    private boolean hasConfirmed;
+    private boolean hasPrediction;
+    private boolean coordHasTime;
+    private boolean coordHasY;
+    private long coordTime;
+    private int coordY;
+
+    private Buffer data;
+
+    /**
+     * Parses and consumes {@code data}.
+     *
+     * @return true if the update had a world id and both coordinates
+     */
+    boolean parse(Buffer data) throws IOException
+    {
+        this.data = data;
+        worldId = 0;
+        hasConfirmed = false;
+        hasPrediction = false;
+
+        skipWhitespace();
+        expect('{');
+        if (!endOfObject())
+        {
+            do
+            {
+                final long nameLength = readNameLength();
+                if (isName(nameLength, FIELD_WORLD_ID))
+                {
+                    skipName(nameLength);
+                    worldId = (int) readLong();
+                }
+                else if (isName(nameLength, FIELD_CONFIRMED))
+                {
+                    skipName(nameLength);
+                    if (readCoord())
+                    {
+                        hasConfirmed = true;
+                        confirmedTime = coordTime;
+                        confirmedY = coordY;
+                    }
+                }
+                else if (isName(nameLength, FIELD_PREDICTION))
+                {
+                    skipName(nameLength);
+                    if (readCoord())
+                    {
+                        hasPrediction = true;
+                        predictedTime = coordTime;
+                        predictedY = coordY;
+                    }
+                }
+                else
+                {
+                    skipName(nameLength);
+                    skipValue();
+                }
+            }
+            while (nextMember());
+        }
+
+        this.data = null;
+        return worldId != 0 && hasConfirmed && hasPrediction;
+    }
+
+    /**
+     * @return true if a complete coordinate was read, false if the value was null or incomplete
+     */
+    private boolean readCoord() throws IOException
+    {
+        skipWhitespace();
+        if (peek() == 'n')
+        {
+            skipValue();
+            return false;
+        }
+
+        coordHasTime = false;
+        coordHasY = false;
+        expect('{');
+        if (!endOfObject())
+        {
+            do
+            {
+                final long nameLength = readNameLength();
+                if (isName(nameLength, FIELD_TIME))
+                {
+                    skipName(nameLength);
+                    coordTime = readLong();
+                    coordHasTime = true;
+                }
+                else if (isName(nameLength, FIELD_Y))
+                {
+                    skipName(nameLength);
+                    coordY = (int) readLong();
+                    coordHasY = true;
+                }
+                else
+                {
+                    skipName(nameLength);
+                    skipValue();
+                }
+            }
+            while (nextMember());
+        }
+        return coordHasTime && coordHasY;
+    }
+
+    /**
+     * Reads the opening quote of a member name and finds its length. The name itself is
+     * left in the buffer so it can be compared in place.
+     */
+    private long readNameLength() throws IOException
+    {
+        skipWhitespace();
+        expect('"');
+        return stringLength();
+    }
+
+    private boolean isName(long nameLength, ByteString name)
+    {
+        return nameLength == name.size() && data.rangeEquals(0, name);
+    }
+
+    /**
+     * Skips the rest of a member name and the colon after it.
+     */
+    private void skipName(long nameLength) throws IOException
+    {
+        data.skip(nameLength + 1);
+        skipWhitespace();
+        expect(':');
+    }
+
+    /**
+     * @return true if there is another member, false if the object ended
+     */
+    private boolean nextMember() throws IOException
+    {
+        skipWhitespace();
+        final byte b = peek();
+        data.skip(1);
+        if (b == ',')
+        {
+            return true;
+        }
+        if (b == '}')
+        {
+            return false;
+        }
+        throw new MalformedJsonException("Expected ',' or '}' in world update");
+    }
+
+    private boolean endOfObject() throws IOException
+    {
+        skipWhitespace();
+        if (peek() == '}')
+        {
+            data.skip(1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads a number, dropping any fraction or exponent.
+     */
+    private long readLong() throws IOException
+    {
+        skipWhitespace();
+        boolean negative = false;
+        if (peek() == '-')
+        {
+            negative = true;
+            data.skip(1);
+        }
+
+        long value = 0;
+        boolean digits = false;
+        while (data.size() > 0)
+        {
+            final byte b = data.getByte(0);
+            if (b < '0' || b > '9')
+            {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            digits = true;
+            data.skip(1);
+        }
+        if (!digits)
+        {
+            throw new MalformedJsonException("Expected a number in world update");
+        }
+
+        while (data.size() > 0)
+        {
+            final byte b = data.getByte(0);
+            if ((b < '0' || b > '9') && b != '.' && b != 'e' && b != 'E' && b != '+' && b != '-')
+            {
+                break;
+            }
+            data.skip(1);
+        }
+        return negative ? -value : value;
+    }
+
+    private void skipValue() throws IOException
+    {
+        skipWhitespace();
+        final byte b = peek();
+        if (b == '"')
+        {
+            data.skip(1);
+            data.skip(stringLength() + 1);
+            return;
+        }
+        if (b != '{' && b != '[')
+        {
+            // number or literal
+            while (data.size() > 0)
+            {
+                final byte c = data.getByte(0);
+                if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\r' || c == '\n')
+                {
+                    return;
+                }
+                data.skip(1);
+            }
+            return;
+        }
+
+        int depth = 0;
+        do
+        {
+            final byte c = peek();
+            data.skip(1);
+            if (c == '"')
+            {
+                data.skip(stringLength() + 1);
+            }
+            else if (c == '{' || c == '[')
+            {
+                ++depth;
+            }
+            else if (c == '}' || c == ']')
+            {
+                --depth;
+            }
+        }
+        while (depth > 0);
+    }
+
+    /**
+     * @return the number of bytes before the closing quote of the string at the head of the buffer
+     */
+    private long stringLength() throws IOException
+    {
+        long i = 0;
+        final long size = data.size();
+        while (i < size)
+        {
+            final byte b = data.getByte(i);
+            if (b == '"')
+            {
+                return i;
+            }
+            i += b == '\\' ? 2 : 1;
+        }
+        throw new MalformedJsonException("Unterminated string in world update");
+    }
+
+    private void expect(char c) throws IOException
+    {
+        if (peek() != c)
+        {
+            throw new MalformedJsonException("Expected '" + c + "' in world update");
+        }
+        data.skip(1);
+    }
+
+    private byte peek() throws IOException
+    {
+        if (data.size() == 0)
+        {
+            throw new MalformedJsonException("Unexpected end of world update");
+        }
+        return data.getByte(0);
+    }
+
+    private void skipWhitespace() throws IOException
+    {
+        while (data.size() > 0)
+        {
+            final byte b = data.getByte(0);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n')
+            {
+                return;
+            }
+            data.skip(1);
+        }
+    }
+}
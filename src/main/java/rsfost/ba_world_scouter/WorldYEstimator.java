@@ -0,0 +1,119 @@
+package rsfost.ba_world_scouter;
+
+/**
+ * Estimates a world's current instance Y between server updates by extending the trend
+ * through its last confirmed position. The trend comes from the server's prediction when it
+ * is ahead of the confirmed position, otherwise from the previous confirmed position.
+ *
+ * <p>Only arithmetic over a {@link WorldStateStore.WorldState}, so it is cheap enough to
+ * evaluate for every visible row on every tick.</p>
+ */
+final class WorldYEstimator
+{
+    // Beyond this the trend is held rather than extended further
+    private static final long MAX_HORIZON_MILLIS = 10 * 60_000;
+    private static final long HIGH_CONFIDENCE_MILLIS = 2 * 60_000;
+    // Two trends disagree if they point different ways or one is this many times steeper
+    private static final double DISAGREEMENT_RATIO = 2;
+
+    enum Confidence
+    {
+        HIGH,
+        MEDIUM,
+        LOW
+    }
+
+    private WorldYEstimator()
+    {
+    }
+
+    static int estimateY(WorldStateStore.WorldState state, long nowMillis)
+    {
+        double slope = predictionSlope(state);
+        if (Double.isNaN(slope))
+        {
+            slope = historySlope(state);
+        }
+        if (Double.isNaN(slope))
+        {
+            return state.getConfirmedY();
+        }
+
+        final long elapsed = Math.max(0, Math.min(MAX_HORIZON_MILLIS, nowMillis - state.getConfirmedTime() * 1000));
+        return (int) Math.round(state.getConfirmedY() + slope * elapsed);
+    }
+
+    static Confidence confidence(WorldStateStore.WorldState state, long nowMillis)
+    {
+        if (state.isStale())
+        {
+            return Confidence.LOW;
+        }
+
+        final double predictionSlope = predictionSlope(state);
+        final double historySlope = historySlope(state);
+        final long age = nowMillis - state.getConfirmedTime() * 1000;
+
+        Confidence confidence;
+        if (age <= HIGH_CONFIDENCE_MILLIS)
+        {
+            confidence = Confidence.HIGH;
+        }
+        else if (age <= MAX_HORIZON_MILLIS && !(Double.isNaN(predictionSlope) && Double.isNaN(historySlope)))
+        {
+            confidence = Confidence.MEDIUM;
+        }
+        else
+        {
+            return Confidence.LOW;
+        }
+
+        if (disagree(predictionSlope, historySlope))
+        {
+            confidence = confidence == Confidence.HIGH ? Confidence.MEDIUM : Confidence.LOW;
+        }
+        return confidence;
+    }
+
+    /**
+     * Y per millisecond from the confirmed position to the prediction, or NaN if the
+     * prediction isn't ahead of it.
+     */
+    private static double predictionSlope(WorldStateStore.WorldState state)
+    {
+        final long dt = state.getPredictedTime() - state.getConfirmedTime();
+        if (dt <= 0)
+        {
+            return Double.NaN;
+        }
+        return (double) (state.getPredictedY() - state.getConfirmedY()) / (dt * 1000);
+    }
+
+    /**
+     * Y per millisecond from the previous confirmed position to the current one, or NaN
+     * without one.
+     */
+    private static double historySlope(WorldStateStore.WorldState state)
+    {
+        final long dt = state.getConfirmedTime() - state.getPreviousTime();
+        if (state.getPreviousTime() == 0 || dt <= 0)
+        {
+            return Double.NaN;
+        }
+        return (double) (state.getConfirmedY() - state.getPreviousY()) / (dt * 1000);
+    }
+
+    private static boolean disagree(double a, double b)
+    {
+        if (Double.isNaN(a) || Double.isNaN(b) || (a == 0 && b == 0))
+        {
+            return false;
+        }
+        if (Math.signum(a) != Math.signum(b))
+        {
+            return true;
+        }
+        final double ratio = Math.abs(a) > Math.abs(b) ? a / b : b / a;
+        return ratio > DISAGREEMENT_RATIO;
+    }
+}
@@ -0,0 +1,114 @@
+package rsfost.ba_world_scouter;
+
+import java.util.BitSet;
+import java.util.function.LongSupplier;
+
+/**
+ * Alerts when a world's Y, confirmed or predicted, drops below a threshold. An update only
+ * compares that world's Y against the threshold, and a world that has alerted has to climb
+ * back above the threshold by a margin, and wait out a cooldown, before it can alert again.
+ * The worlds are also kept sorted by Y, so a new threshold finds the worlds already below it
+ * without checking the rest.
+ */
+class YThresholdAlerts
+{
+    // How far above the threshold a world has to climb before it can alert again
+    private static final int REARM_MARGIN = 50;
+    private static final long COOLDOWN_MILLIS = 60_000;
+
+    private final WorldStateStore store;
+    private final Listener listener;
+    private final LongSupplier clock;
+    private final WorldStateStore.WorldState state = new WorldStateStore.WorldState();
+    private final SortedWorldIndex yIndex = new SortedWorldIndex();
+    // Worlds below the threshold that can't alert until they climb back above it
+    private final BitSet below = new BitSet(WorldStateStore.MAX_WORLDS);
+    private final long[] lastAlertMillis = new long[WorldStateStore.MAX_WORLDS];
+    private int threshold;
+
+    interface Listener
+    {
+        /**
+         * Called on the thread that delivered the update.
+         */
+        void onCrossing(int worldId, int y, int threshold);
+    }
+
+    YThresholdAlerts(WorldStateStore store, Listener listener)
+    {
+        this(store, listener, System::currentTimeMillis);
+    }
+
+    YThresholdAlerts(WorldStateStore store, Listener listener, LongSupplier clock)
+    {
+        this.store = store;
+        this.listener = listener;
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the threshold, or turns alerts off with 0. Worlds that are already below a new
+     * threshold don't alert until they have been above it.
+     */
+    synchronized void setThreshold(int threshold)
+    {
+        this.threshold = threshold;
+        below.clear();
+        if (threshold > 0)
+        {
+            yIndex.collect(SortedWorldIndex.NO_LIMIT, threshold - 1, below);
+        }
+    }
+
+    /**
+     * Re-reads a world from the store and alerts if it just crossed below the threshold.
+     * Safe to call from any thread.
+     */
+    synchronized void update(int worldId)
+    {
+        if (!store.read(worldId, state) || state.isStale())
+        {
+            yIndex.remove(worldId);
+            below.clear(worldId);
+            return;
+        }
+
+        final int y = lowestY(state);
+        final boolean known = yIndex.contains(worldId);
+        yIndex.put(worldId, y);
+        if (threshold <= 0 || y == WorldStateStore.UNKNOWN)
+        {
+            return;
+        }
+
+        if (y >= threshold + REARM_MARGIN)
+        {
+            below.clear(worldId);
+            return;
+        }
+        if (y >= threshold || below.get(worldId))
+        {
+            return;
+        }
+
+        below.set(worldId);
+        // The first update seen for a world isn't a crossing, or every start would alert
+        final long now = clock.getAsLong();
+        if (known && now - lastAlertMillis[worldId] >= COOLDOWN_MILLIS)
+        {
+            lastAlertMillis[worldId] = now;
+            listener.onCrossing(worldId, y, threshold);
+        }
+    }
+
+    private static int lowestY(WorldStateStore.WorldState state)
+    {
+        final int confirmed = state.getConfirmedY();
+        final int predicted = state.getPredictedY();
+        if (predicted == WorldStateStore.UNKNOWN || (confirmed != WorldStateStore.UNKNOWN && confirmed <= predicted))
+        {
+            return confirmed;
+        }
+        return predicted;
+    }
+}
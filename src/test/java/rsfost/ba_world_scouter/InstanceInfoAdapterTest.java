@@ -0,0 +1,148 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class InstanceInfoAdapterTest
+{
+	private static final String CONFIRMED = "\"confirmed\":{\"time\":100,\"y\":5200}";
+	private static final String PREDICTION = "\"prediction\":{\"time\":160,\"y\":5250}";
+
+	private final InstanceInfoAdapter adapter = new InstanceInfoAdapter();
+
+	private InstanceInfo read(String json) throws IOException
+	{
+		return adapter.read(new JsonReader(new StringReader(json)));
+	}
+
+	@Test
+	public void testComplete() throws IOException
+	{
+		final InstanceInfo info = read("{\"worldId\":330," + CONFIRMED + "," + PREDICTION + ",\"time\":100}");
+		assertEquals(330, info.getWorldId());
+		assertEquals(new InstanceInfo.Coord(100, 5200), info.getConfirmed());
+		assertEquals(new InstanceInfo.Coord(160, 5250), info.getPrediction());
+	}
+
+	@Test
+	public void testNestedUnknownFieldsAreSkipped() throws IOException
+	{
+		final InstanceInfo info = read("{\"extra\":{\"a\":[1,{\"b\":\"}]\"}],\"c\":null},\"worldId\":330,"
+			+ "\"confirmed\":{\"meta\":[true],\"time\":100,\"y\":5200}," + PREDICTION + "}");
+		assertEquals(330, info.getWorldId());
+		assertEquals(5200, info.getConfirmed().getY());
+	}
+
+	@Test
+	public void testEscapedStringsAreSkipped() throws IOException
+	{
+		final InstanceInfo info = read("{\"name\":\"a \\\"quoted\\\" } value\\\\\",\"we\\\"ird\":1,"
+			+ "\"worldId\":330," + CONFIRMED + "," + PREDICTION + "}");
+		assertEquals(330, info.getWorldId());
+	}
+
+	@Test
+	public void testNull() throws IOException
+	{
+		assertNull(read("null"));
+	}
+
+	@Test
+	public void testMissingWorldId() throws IOException
+	{
+		assertNull(read("{" + CONFIRMED + "," + PREDICTION + "}"));
+	}
+
+	@Test
+	public void testMissingCoordinate() throws IOException
+	{
+		assertNull(read("{\"worldId\":330," + CONFIRMED + "}"));
+	}
+
+	@Test
+	public void testNullCoordinate() throws IOException
+	{
+		assertNull(read("{\"worldId\":330," + CONFIRMED + ",\"prediction\":null}"));
+	}
+
+	@Test
+	public void testCoordinateMissingY() throws IOException
+	{
+		assertNull(read("{\"worldId\":330," + CONFIRMED + ",\"prediction\":{\"time\":160}}"));
+	}
+
+	@Test
+	public void testCoordinateMissingTime() throws IOException
+	{
+		assertNull(read("{\"worldId\":330,\"confirmed\":{\"y\":5200}," + PREDICTION + "}"));
+	}
+
+	@Test
+	public void testArrayWithIncompleteElement() throws IOException
+	{
+		final JsonReader reader = new JsonReader(new StringReader("[{\"worldId\":330," + CONFIRMED + "," + PREDICTION + "},"
+			+ "{\"worldId\":331," + CONFIRMED + "},{\"worldId\":332," + CONFIRMED + "," + PREDICTION + "}]"));
+		final List<Integer> worldIds = new ArrayList<>();
+		reader.beginArray();
+		while (reader.hasNext())
+		{
+			final InstanceInfo info = adapter.read(reader);
+			if (info != null)
+			{
+				worldIds.add(info.getWorldId());
+			}
+		}
+		reader.endArray();
+		assertEquals(List.of(330, 332), worldIds);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		final InstanceInfo info = new InstanceInfo(330, new InstanceInfo.Coord(100, 5200),
+			new InstanceInfo.Coord(160, 5250), 100);
+		assertEquals(info, adapter.fromJson(adapter.toJson(info)));
+	}
+
+	@Test
+	public void testRoundTripKeepsElementTime() throws IOException
+	{
+		final InstanceInfo info = new InstanceInfo(330, new InstanceInfo.Coord(100, 5200),
+			new InstanceInfo.Coord(160, 5250), 130);
+		final String json = adapter.toJson(info);
+		final InstanceInfo read = adapter.fromJson(json);
+		assertEquals(130, read.getElementTime());
+		assertEquals(100, read.getTime());
+		assertEquals(info.getConfirmed(), read.getConfirmed());
+		assertEquals(info.getPrediction(), read.getPrediction());
+		assertEquals(json, adapter.toJson(read));
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncated() throws IOException
+	{
+		read("{\"worldId\":330,\"confirmed\":{\"time\":100");
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testMalformed() throws IOException
+	{
+		read("{\"worldId\":330,," + CONFIRMED + "}");
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testNotANumber() throws IOException
+	{
+		read("{\"worldId\":\"abc\"}");
+	}
+}
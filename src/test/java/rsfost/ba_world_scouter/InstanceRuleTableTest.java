@@ -0,0 +1,116 @@
+package rsfost.ba_world_scouter;
+
+import org.junit.Test;
+
+import java.awt.Color;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class InstanceRuleTableTest
+{
+	private static final int BA_WAVE_REGION = 7509;
+	private static final int OTHER_REGION = 12345;
+
+	private static InstanceRuleTable compile(BaWorldScouterConfig.IndicatorActiveMode mode, String rules)
+	{
+		return InstanceRuleTable.compile(mode, rules);
+	}
+
+	private static InstanceRuleTable custom(String rules)
+	{
+		return compile(BaWorldScouterConfig.IndicatorActiveMode.BA_ONLY, rules);
+	}
+
+	@Test
+	public void testBaRules()
+	{
+		final InstanceRuleTable table = custom("");
+		assertEquals("Good premove", table.match(BA_WAVE_REGION, 5299).getLabel());
+		assertEquals("Bad premove", table.match(BA_WAVE_REGION, 5300).getLabel());
+		assertNull(table.match(OTHER_REGION, 5000));
+	}
+
+	@Test
+	public void testAllInstances()
+	{
+		final InstanceRuleTable table = compile(BaWorldScouterConfig.IndicatorActiveMode.ALL_INSTANCES, "");
+		assertEquals("Good premove", table.match(OTHER_REGION, 5000).getLabel());
+	}
+
+	@Test
+	public void testScrollerOnly()
+	{
+		final InstanceRuleTable table = compile(BaWorldScouterConfig.IndicatorActiveMode.SCROLLER_ONLY, "");
+		assertNotEquals(InstanceRule.NO_ITEM, table.match(BA_WAVE_REGION, 5000).getRequiredItemId());
+	}
+
+	@Test
+	public void testDisabled()
+	{
+		assertSame(InstanceRuleTable.EMPTY,
+			compile(BaWorldScouterConfig.IndicatorActiveMode.DISABLE, "100; 0-10; Here; #00ff00"));
+	}
+
+	@Test
+	public void testOutOfRangeRegion()
+	{
+		final InstanceRuleTable table = compile(BaWorldScouterConfig.IndicatorActiveMode.ALL_INSTANCES, "");
+		assertNull(table.match(-1, 5000));
+		assertNull(table.match(1 << 16, 5000));
+	}
+
+	@Test
+	public void testCustomRule()
+	{
+		final InstanceRuleTable table = custom("100, 200; 10-20; Here; #00ff00; 4321");
+		final InstanceRule rule = table.match(100, 10);
+		assertEquals("Here", rule.getLabel());
+		assertEquals(new Color(0, 255, 0), rule.getColor());
+		assertEquals(4321, rule.getRequiredItemId());
+		// Both bounds are inclusive
+		assertSame(rule, table.match(200, 20));
+		assertNull(table.match(200, 9));
+		assertNull(table.match(200, 21));
+	}
+
+	@Test
+	public void testCustomRulesComeFirst()
+	{
+		final InstanceRuleTable table = custom("7509; 5000-5100; Custom; #0000ff");
+		assertEquals("Custom", table.match(BA_WAVE_REGION, 5050).getLabel());
+		assertEquals("Good premove", table.match(BA_WAVE_REGION, 4000).getLabel());
+	}
+
+	@Test
+	public void testBlankLinesAndComments()
+	{
+		final InstanceRuleTable table = custom("\n# 100; 0-10; Commented; #ff0000\n  \n100; 0-10; Here; #00ff00\n");
+		assertEquals("Here", table.match(100, 5).getLabel());
+	}
+
+	@Test
+	public void testMalformedLinesAreIgnored()
+	{
+		final InstanceRuleTable table = custom(String.join("\n",
+			"100; 0-10; Too few fields",
+			"100; 0-10; Too many; #ff0000; 1; 2",
+			"100; 10; No range; #ff0000",
+			"100; 0-x; Bad bound; #ff0000",
+			"100; 0-10; Bad colour; #zzzzzz",
+			"abc; 0-10; Bad region; #ff0000",
+			"100; 0-10; Bad item; #ff0000; x",
+			"100; 0-10; Valid; #00ff00"));
+		assertEquals("Valid", table.match(100, 5).getLabel());
+	}
+
+	@Test
+	public void testLineWithInvalidRegionAddsNothing()
+	{
+		final InstanceRuleTable table = custom("100, 70000; 0-10; Partial; #ff0000\n101, -1; 0-10; Partial; #ff0000");
+		assertNull(table.match(100, 5));
+		assertNull(table.match(101, 5));
+	}
+}
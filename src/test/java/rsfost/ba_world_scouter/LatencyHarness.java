@@ -0,0 +1,337 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.runelite.api.Client;
+import net.runelite.client.callback.ClientThread;
+import okhttp3.OkHttpClient;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measures how long a world update takes to get from the server to the EDT. It serves a
+ * local stand-in for the bascout API ({@code /worlds}, {@code /worlds/stream} and
+ * {@code PUT /world/{id}}) with the JDK's HTTP server. An {@link InstanceInfoService} and a
+ * {@link WorldUpdateCoalescer} are pointed at it, wired the same way the plugin wires them.
+ *
+ * <p>Options, all optional: {@code --rate} events per second, {@code --burst} extra events
+ * sent at once every {@code --burst-every} seconds, {@code --disconnect-every} seconds
+ * between the server dropping the stream, and {@code --duration} seconds. A client started
+ * from {@link BaWorldScouterPluginTest} with {@code -Dba_world_scouter.apiBase=<printed url>}
+ * can be pointed at the same server.</p>
+ */
+public class LatencyHarness
+{
+	private static final int WORLDS = 300;
+	private static final int FIRST_WORLD = 301;
+	private static final int UPDATE_INTERVAL_MILLIS = 50;
+
+	private final Gson gson = new Gson();
+	private final ScouterMetrics metrics = new ScouterMetrics();
+	private final Random random = new Random(1);
+	private final InstanceInfo[] worlds = new InstanceInfo[WorldStateStore.MAX_WORLDS];
+	private final BlockingQueue<Integer> events = new LinkedBlockingQueue<>();
+
+	// When the oldest update of each world not yet seen on the EDT was written
+	private final AtomicLongArray pendingSince = new AtomicLongArray(WorldStateStore.MAX_WORLDS);
+	private final AtomicLong disconnectedAt = new AtomicLong();
+	private final AtomicLong reconnectedAt = new AtomicLong();
+	private final AtomicInteger eventsSent = new AtomicInteger();
+	private final AtomicInteger streamsOpened = new AtomicInteger();
+	private final AtomicInteger puts = new AtomicInteger();
+	private volatile boolean disconnect;
+	private volatile boolean running = true;
+
+	// EDT only
+	private final Samples latencies = new Samples();
+	private final Samples recoveries = new Samples();
+	private int batches;
+
+	private final double rate;
+	private final int burst;
+	private final int burstEvery;
+	private final int disconnectEvery;
+	private final int duration;
+
+	private LatencyHarness(double rate, int burst, int burstEvery, int disconnectEvery, int duration)
+	{
+		this.rate = rate;
+		this.burst = burst;
+		this.burstEvery = burstEvery;
+		this.disconnectEvery = disconnectEvery;
+		this.duration = duration;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		double rate = 50;
+		int burst = 0;
+		int burstEvery = 5;
+		int disconnectEvery = 0;
+		int duration = 60;
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			switch (args[i])
+			{
+				case "--rate":
+					rate = Double.parseDouble(args[i + 1]);
+					break;
+				case "--burst":
+					burst = Integer.parseInt(args[i + 1]);
+					break;
+				case "--burst-every":
+					burstEvery = Integer.parseInt(args[i + 1]);
+					break;
+				case "--disconnect-every":
+					disconnectEvery = Integer.parseInt(args[i + 1]);
+					break;
+				case "--duration":
+					duration = Integer.parseInt(args[i + 1]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		new LatencyHarness(rate, burst, burstEvery, disconnectEvery, duration).run();
+		System.exit(0);
+	}
+
+	private void run() throws Exception
+	{
+		final long now = System.currentTimeMillis() / 1000;
+		for (int worldId = FIRST_WORLD; worldId < FIRST_WORLD + WORLDS; ++worldId)
+		{
+			worlds[worldId] = nextInstanceInfo(worldId, now - random.nextInt(3600));
+		}
+
+		final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/api/v1/worlds/stream", this::handleStream);
+		server.createContext("/api/v1/worlds", this::handleWorlds);
+		server.createContext("/api/v1/world/", this::handlePut);
+		server.start();
+		final String apiBase = "http://localhost:" + server.getAddress().getPort() + "/api/v1";
+		System.out.println("Serving " + apiBase);
+
+		final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+		final InstanceInfoService service = new InstanceInfoService(
+			fakeClient(), new ClientThread(), executor, null, new OkHttpClient(), gson,
+			new WorldStateStore(), new WorldHistory(), metrics, apiBase);
+		final WorldUpdateCoalescer coalescer = new WorldUpdateCoalescer(
+			executor, () -> UPDATE_INTERVAL_MILLIS, this::onBatch, metrics);
+
+		service.getInstanceInfos(false,
+			coalescer::offer,
+			() -> System.out.println("Fetched worlds"),
+			() -> {},
+			error -> System.out.println("Unable to fetch worlds: " + error));
+		service.startWorldStream(coalescer::offer, () -> System.out.println("Resync requested"));
+
+		if (rate > 0)
+		{
+			executor.scheduleAtFixedRate(this::queueEvent, 0, (long) (1_000_000_000 / rate), TimeUnit.NANOSECONDS);
+		}
+		if (burst > 0)
+		{
+			executor.scheduleAtFixedRate(() -> {
+				for (int i = 0; i < burst; ++i)
+				{
+					queueEvent();
+				}
+			}, burstEvery, burstEvery, TimeUnit.SECONDS);
+		}
+		if (disconnectEvery > 0)
+		{
+			executor.scheduleAtFixedRate(() -> disconnect = true, disconnectEvery, disconnectEvery, TimeUnit.SECONDS);
+		}
+		executor.scheduleAtFixedRate(
+			() -> service.putInstanceInfo(new WorldReport(FIRST_WORLD, 1900, 5300, 7509, System.currentTimeMillis()),
+				() -> {}, () -> {}), 1, 1, TimeUnit.SECONDS);
+
+		Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+
+		running = false;
+		service.stopWorldStream();
+		coalescer.stop();
+		executor.shutdownNow();
+		server.stop(0);
+
+		// Let the EDT finish any batch already queued before reading its samples
+		SwingUtilities.invokeAndWait(this::report);
+	}
+
+	private void queueEvent()
+	{
+		events.offer(FIRST_WORLD + random.nextInt(WORLDS));
+	}
+
+	private void onBatch(BitSet worldIds)
+	{
+		final long now = System.nanoTime();
+		++batches;
+		boolean recovered = false;
+		for (int worldId = worldIds.nextSetBit(0); worldId >= 0; worldId = worldIds.nextSetBit(worldId + 1))
+		{
+			final long since = pendingSince.getAndSet(worldId, 0);
+			if (since == 0)
+			{
+				continue;
+			}
+			latencies.add(now - since);
+			recovered |= since >= reconnectedAt.get();
+		}
+
+		final long disconnected = disconnectedAt.get();
+		if (recovered && disconnected != 0 && disconnectedAt.compareAndSet(disconnected, 0))
+		{
+			recoveries.add(now - disconnected);
+		}
+	}
+
+	private void handleStream(HttpExchange exchange) throws IOException
+	{
+		streamsOpened.incrementAndGet();
+		if (disconnectedAt.get() != 0)
+		{
+			reconnectedAt.set(System.nanoTime());
+		}
+
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write("retry: 1000\n\n".getBytes(StandardCharsets.UTF_8));
+			out.flush();
+
+			while (running)
+			{
+				if (disconnect)
+				{
+					disconnect = false;
+					disconnectedAt.set(System.nanoTime());
+					return;
+				}
+
+				final Integer worldId = events.poll(100, TimeUnit.MILLISECONDS);
+				if (worldId == null)
+				{
+					continue;
+				}
+
+				final InstanceInfo info = nextInstanceInfo(worldId, System.currentTimeMillis() / 1000);
+				worlds[worldId] = info;
+				final String event = "id: " + eventsSent.incrementAndGet() + "\ndata: " + gson.toJson(info) + "\n\n";
+				pendingSince.compareAndSet(worldId, 0, System.nanoTime());
+				out.write(event.getBytes(StandardCharsets.UTF_8));
+				out.flush();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (IOException e)
+		{
+			// The client went away; it will reconnect
+		}
+	}
+
+	private void handleWorlds(HttpExchange exchange) throws IOException
+	{
+		final InstanceInfo[] snapshot = Arrays.stream(worlds).filter(w -> w != null).toArray(InstanceInfo[]::new);
+		final byte[] body = gson.toJson(snapshot).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(body);
+		}
+	}
+
+	private void handlePut(HttpExchange exchange) throws IOException
+	{
+		exchange.getRequestBody().readAllBytes();
+		exchange.sendResponseHeaders("PUT".equals(exchange.getRequestMethod()) ? 200 : 405, -1);
+		exchange.close();
+		puts.incrementAndGet();
+	}
+
+	private InstanceInfo nextInstanceInfo(int worldId, long time)
+	{
+		final int y = 4800 + random.nextInt(1000);
+		return new InstanceInfo(worldId,
+			new InstanceInfo.Coord(time, y),
+			new InstanceInfo.Coord(time + 60, y + random.nextInt(50)),
+			time);
+	}
+
+	private void report()
+	{
+		System.out.println();
+		System.out.printf("Events sent:        %d (%d seen on the EDT in %d batches)%n",
+			eventsSent.get(), latencies.size, batches);
+		System.out.printf("Event-to-EDT:       p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+			latencies.percentile(50), latencies.percentile(99), latencies.percentile(100));
+		System.out.printf("Streams opened:     %d%n", streamsOpened.get());
+		System.out.printf("Reconnect recovery: %d samples, p50 %.1f ms, max %.1f ms%n",
+			recoveries.size, recoveries.percentile(50), recoveries.percentile(100));
+		System.out.printf("World info PUTs:    %d%n", puts.get());
+		System.out.println();
+		metrics.dump(new PrintWriter(System.out, true));
+	}
+
+	private static Client fakeClient()
+	{
+		return (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[]{Client.class},
+			(proxy, method, args) -> "getWorld".equals(method.getName()) ? FIRST_WORLD : null);
+	}
+
+	/**
+	 * Durations in nanoseconds, reported in milliseconds.
+	 */
+	private static class Samples
+	{
+		private long[] values = new long[1024];
+		private int size;
+
+		void add(long value)
+		{
+			if (size == values.length)
+			{
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		double percentile(int percentile)
+		{
+			if (size == 0)
+			{
+				return Double.NaN;
+			}
+			final long[] sorted = Arrays.copyOf(values, size);
+			Arrays.sort(sorted);
+			final int index = Math.min(size - 1, (int) Math.ceil(percentile / 100.0 * size) - 1);
+			return sorted[Math.max(0, index)] / 1_000_000.0;
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package rsfost.ba_world_scouter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single threaded scheduler driven by hand. Nothing runs until the test advances the clock,
+ * and then tasks run on the test's thread in the order they fall due.
+ */
+class ManualScheduler extends AbstractExecutorService implements ScheduledExecutorService
+{
+	private final PriorityQueue<Task<?>> tasks = new PriorityQueue<>(
+		Comparator.<Task<?>>comparingLong(task -> task.atMillis).thenComparingLong(task -> task.order));
+	private long now;
+	private long sequence;
+
+	ManualScheduler(long now)
+	{
+		this.now = now;
+	}
+
+	long now()
+	{
+		return now;
+	}
+
+	/**
+	 * Runs everything that falls due within the next {@code millis}, including tasks those
+	 * tasks schedule.
+	 */
+	void advance(long millis)
+	{
+		final long until = now + millis;
+		while (!tasks.isEmpty() && tasks.peek().atMillis <= until)
+		{
+			final Task<?> task = tasks.poll();
+			now = Math.max(now, task.atMillis);
+			task.run();
+		}
+		now = until;
+	}
+
+	/**
+	 * Runs whatever is due now.
+	 */
+	void runPending()
+	{
+		advance(0);
+	}
+
+	int queued()
+	{
+		return tasks.size();
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit)
+	{
+		return schedule(() -> {
+			command.run();
+			return null;
+		}, delay, unit);
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit)
+	{
+		final Task<V> task = new Task<>(callable, now + unit.toMillis(delay), sequence++);
+		tasks.add(task);
+		return task;
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void execute(Runnable command)
+	{
+		schedule(command, 0, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void shutdown()
+	{
+		tasks.clear();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow()
+	{
+		tasks.clear();
+		return new ArrayList<>();
+	}
+
+	@Override
+	public boolean isShutdown()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean isTerminated()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+	{
+		return true;
+	}
+
+	private class Task<V> implements ScheduledFuture<V>
+	{
+		private final Callable<V> callable;
+		private final long atMillis;
+		private final long order;
+		private boolean done;
+		private boolean cancelled;
+		private V result;
+
+		Task(Callable<V> callable, long atMillis, long order)
+		{
+			this.callable = callable;
+			this.atMillis = atMillis;
+			this.order = order;
+		}
+
+		void run()
+		{
+			try
+			{
+				result = callable.call();
+			}
+			catch (Exception e)
+			{
+				throw new AssertionError(e);
+			}
+			done = true;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit)
+		{
+			return unit.convert(atMillis - now, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other)
+		{
+			return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			if (done || cancelled)
+			{
+				return false;
+			}
+			cancelled = true;
+			tasks.remove(this);
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled()
+		{
+			return cancelled;
+		}
+
+		@Override
+		public boolean isDone()
+		{
+			return done || cancelled;
+		}
+
+		@Override
+		public V get()
+		{
+			return result;
+		}
+
+		@Override
+		public V get(long timeout, TimeUnit unit)
+		{
+			return result;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package rsfost.ba_world_scouter;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SortedWorldIndexTest
+{
+	private static final long NO_LIMIT = SortedWorldIndex.NO_LIMIT;
+
+	private final SortedWorldIndex index = new SortedWorldIndex();
+
+	private static BitSet worlds(int... worldIds)
+	{
+		final BitSet set = new BitSet();
+		for (int worldId : worldIds)
+		{
+			set.set(worldId);
+		}
+		return set;
+	}
+
+	private BitSet collect(long min, long max)
+	{
+		final BitSet out = new BitSet();
+		index.collect(min, max, out);
+		return out;
+	}
+
+	@Test
+	public void testCollectIsInclusive()
+	{
+		index.put(301, 10);
+		index.put(302, 20);
+		index.put(303, 30);
+		assertEquals(worlds(301, 302), collect(10, 20));
+		assertEquals(worlds(302, 303), collect(20, NO_LIMIT));
+		assertEquals(worlds(301, 302, 303), collect(NO_LIMIT, NO_LIMIT));
+		assertEquals(worlds(), collect(31, NO_LIMIT));
+	}
+
+	@Test
+	public void testEqualValues()
+	{
+		index.put(302, 20);
+		index.put(301, 20);
+		assertEquals(worlds(301, 302), collect(20, 20));
+	}
+
+	@Test
+	public void testPutMovesWorld()
+	{
+		index.put(301, 10);
+		index.put(302, 20);
+		index.put(301, 30);
+		assertEquals(worlds(302), collect(NO_LIMIT, 20));
+		assertEquals(worlds(301), collect(25, NO_LIMIT));
+		assertTrue(index.matches(301, 30, 30));
+		assertFalse(index.matches(301, 10, 10));
+	}
+
+	@Test
+	public void testRemove()
+	{
+		index.put(301, 10);
+		index.put(302, 20);
+		index.remove(301);
+		index.remove(303);
+		assertFalse(index.contains(301));
+		assertTrue(index.contains(302));
+		assertEquals(worlds(302), collect(NO_LIMIT, NO_LIMIT));
+		assertFalse(index.matches(301, 0, 100));
+	}
+
+	@Test
+	public void testUnknownValues()
+	{
+		index.put(301, WorldStateStore.UNKNOWN);
+		index.put(302, 0);
+		assertEquals(worlds(302), collect(NO_LIMIT, NO_LIMIT));
+		assertEquals(worlds(302), collect(NO_LIMIT, 5));
+		assertFalse(index.matches(301, NO_LIMIT, 5));
+		// Without bounds nothing is checked, not even whether the value is known
+		assertTrue(index.matches(301, NO_LIMIT, NO_LIMIT));
+		assertTrue(index.matches(303, NO_LIMIT, NO_LIMIT));
+	}
+
+	@Test
+	public void testRetain()
+	{
+		index.put(301, 10);
+		index.put(302, 20);
+		index.put(303, 30);
+		final BitSet set = worlds(301, 303, 304);
+		index.retain(set, 15, NO_LIMIT, new BitSet());
+		assertEquals(worlds(303), set);
+	}
+
+	@Test
+	public void testRetainWithoutBounds()
+	{
+		final BitSet set = worlds(301, 304);
+		index.retain(set, NO_LIMIT, NO_LIMIT, new BitSet());
+		assertEquals(worlds(301, 304), set);
+	}
+
+	@Test
+	public void testLargeValues()
+	{
+		final long time = 1_750_000_000L;
+		index.put(301, time);
+		index.put(302, time + 60);
+		assertEquals(worlds(302), collect(time + 1, NO_LIMIT));
+	}
+}
@@ -0,0 +1,210 @@
+package rsfost.ba_world_scouter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SortedWorldRowsTest
+{
+	private static final int WORLDS = 200;
+	private static final int PATCHES = 2000;
+
+	private final WorldStateStore store = new WorldStateStore();
+	private final ArrayList<WorldStateStore.WorldState> rows = new ArrayList<>();
+	private final WorldStateStore.WorldState[] lookup = new WorldStateStore.WorldState[WorldStateStore.MAX_WORLDS];
+	private final BitSet listed = new BitSet();
+
+	@Test
+	public void testPatchesKeepEveryOrder()
+	{
+		for (WorldInfoPanel.WorldOrder order : WorldInfoPanel.WorldOrder.values())
+		{
+			for (boolean ascending : new boolean[]{true, false})
+			{
+				for (boolean predicted : new boolean[]{true, false})
+				{
+					patchRandomly(order, ascending, predicted);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTiesBreakByWorldId()
+	{
+		write(5, -1, 0);
+		write(3, -1, 0);
+		write(4, 0, 0);
+		write(2, 7, 0);
+		final SortedWorldRows sorted = sortedRows(WorldInfoPanel.WorldOrder.INSTANCE_Y, false, false);
+		for (int worldId = 2; worldId <= 5; ++worldId)
+		{
+			rows.add(lookup[worldId]);
+		}
+		sorted.sort();
+		assertEquals(List.of(2, 4, 3, 5), worldIds());
+
+		sortedRows(WorldInfoPanel.WorldOrder.INSTANCE_Y, true, false).sort();
+		assertEquals(List.of(3, 5, 4, 2), worldIds());
+	}
+
+	@Test
+	public void testUnknownPopulationSortsLast()
+	{
+		write(3, 0, 0);
+		write(2, 0, 10);
+		store.setWorldDetails(2, 10, null);
+		store.read(2, lookup[2]);
+		rows.add(lookup[3]);
+		rows.add(lookup[2]);
+		sortedRows(WorldInfoPanel.WorldOrder.POPULATION, true, false).sort();
+		assertEquals(List.of(2, 3), worldIds());
+	}
+
+	@Test
+	public void testIndexOfMissingRow()
+	{
+		write(2, 0, 0);
+		write(3, 0, 0);
+		final SortedWorldRows sorted = sortedRows(WorldInfoPanel.WorldOrder.WORLD, true, false);
+		sorted.insert(lookup[2]);
+		assertEquals(0, sorted.indexOf(lookup[2]));
+		assertEquals(-1, sorted.indexOf(lookup[3]));
+		sorted.remove(0);
+		assertEquals(-1, sorted.indexOf(lookup[2]));
+	}
+
+	private void patchRandomly(WorldInfoPanel.WorldOrder order, boolean ascending, boolean predicted)
+	{
+		final Random random = new Random(order.ordinal() * 4 + (ascending ? 2 : 0) + (predicted ? 1 : 0));
+		final SortedWorldRows sorted = sortedRows(order, ascending, predicted);
+		rows.clear();
+		listed.clear();
+		for (int worldId = 1; worldId <= WORLDS; ++worldId)
+		{
+			writeRandom(random, worldId);
+			if (random.nextBoolean())
+			{
+				rows.add(lookup[worldId]);
+				listed.set(worldId);
+			}
+		}
+		sorted.sort();
+		assertSorted(order, ascending, predicted);
+
+		for (int i = 0; i < PATCHES; ++i)
+		{
+			final int worldId = 1 + random.nextInt(WORLDS);
+			final WorldStateStore.WorldState row = lookup[worldId];
+			final int index = sorted.indexOf(row);
+			assertEquals(listed.get(worldId), index >= 0);
+
+			writeRandom(random, worldId);
+			if (index < 0)
+			{
+				sorted.insert(row);
+				listed.set(worldId);
+			}
+			else if (random.nextInt(8) == 0)
+			{
+				sorted.remove(index);
+				listed.clear(worldId);
+			}
+			else
+			{
+				sorted.move(index);
+			}
+			assertSorted(order, ascending, predicted);
+		}
+	}
+
+	private SortedWorldRows sortedRows(WorldInfoPanel.WorldOrder order, boolean ascending, boolean predicted)
+	{
+		return new SortedWorldRows(rows, row -> WorldInfoPanel.sortKey(row, order, ascending, predicted));
+	}
+
+	/**
+	 * Values are drawn from narrow ranges, some negative, so that many rows tie.
+	 */
+	private void writeRandom(Random random, int worldId)
+	{
+		final int y = (random.nextInt(9) - 4) * 100;
+		final long time = 1_750_000_000L + random.nextInt(4);
+		store.update(worldId, y, time, y + random.nextInt(3) * 100, time + 60);
+		store.setWorldDetails(worldId, random.nextInt(4) == 0 ? WorldStateStore.UNKNOWN : random.nextInt(3), null);
+		read(worldId);
+	}
+
+	private void write(int worldId, int y, long time)
+	{
+		store.update(worldId, y, time, y, time);
+		read(worldId);
+	}
+
+	private void read(int worldId)
+	{
+		if (lookup[worldId] == null)
+		{
+			lookup[worldId] = new WorldStateStore.WorldState();
+		}
+		store.read(worldId, lookup[worldId]);
+	}
+
+	private List<Integer> worldIds()
+	{
+		return rows.stream().map(WorldStateStore.WorldState::getWorldId).collect(Collectors.toList());
+	}
+
+	/**
+	 * Checks the rows against a full sort of the same keys, and against a plain comparison
+	 * of the unpacked values so that a packing mistake can't hide behind itself.
+	 */
+	private void assertSorted(WorldInfoPanel.WorldOrder order, boolean ascending, boolean predicted)
+	{
+		final BitSet present = new BitSet();
+		final long[] keys = new long[rows.size()];
+		for (int i = 0; i < keys.length; ++i)
+		{
+			keys[i] = WorldInfoPanel.sortKey(rows.get(i), order, ascending, predicted);
+			present.set(rows.get(i).getWorldId());
+		}
+		assertEquals(listed, present);
+
+		final long[] expectedKeys = keys.clone();
+		Arrays.sort(expectedKeys);
+		assertArrayEquals(expectedKeys, keys);
+
+		Comparator<WorldStateStore.WorldState> byValue = Comparator.comparingLong(row -> value(row, order, predicted));
+		if (!ascending)
+		{
+			byValue = byValue.reversed();
+		}
+		final List<WorldStateStore.WorldState> expected = new ArrayList<>(rows);
+		expected.sort(byValue.thenComparingInt(WorldStateStore.WorldState::getWorldId));
+		assertEquals(expected, rows);
+	}
+
+	private static long value(WorldStateStore.WorldState row, WorldInfoPanel.WorldOrder order, boolean predicted)
+	{
+		switch (order)
+		{
+			case INSTANCE_Y:
+				return row.getY(predicted);
+			case POPULATION:
+				return row.getPopulation() == WorldStateStore.UNKNOWN ? Integer.MAX_VALUE : row.getPopulation();
+			case LAST_UPDATED:
+				return row.getConfirmedTime();
+			default:
+				return row.getWorldId();
+		}
+	}
+}
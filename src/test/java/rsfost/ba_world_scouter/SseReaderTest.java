@@ -0,0 +1,184 @@
+package rsfost.ba_world_scouter;
+
+import okio.Buffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SseReaderTest
+{
+	private final List<String> events = new ArrayList<>();
+	private final List<String> types = new ArrayList<>();
+	private final List<Long> retries = new ArrayList<>();
+
+	private final SseReader.Listener listener = new SseReader.Listener()
+	{
+		@Override
+		public void onEvent(String type, Buffer data)
+		{
+			types.add(type);
+			events.add(data.readUtf8());
+		}
+
+		@Override
+		public void onRetry(long retryMillis)
+		{
+			retries.add(retryMillis);
+		}
+	};
+
+	private SseReader read(String stream) throws IOException
+	{
+		final SseReader reader = new SseReader(new Buffer().writeUtf8(stream), listener);
+		reader.readAll();
+		return reader;
+	}
+
+	@Test
+	public void testLfLineEndings() throws IOException
+	{
+		read("data: a\n\ndata: b\n\n");
+		assertEquals(Arrays.asList("a", "b"), events);
+	}
+
+	@Test
+	public void testCrlfLineEndings() throws IOException
+	{
+		read("data: a\r\n\r\ndata: b\r\n\r\n");
+		assertEquals(Arrays.asList("a", "b"), events);
+	}
+
+	@Test
+	public void testCrLineEndings() throws IOException
+	{
+		read("data: a\r\rdata: b\r\r");
+		assertEquals(Arrays.asList("a", "b"), events);
+	}
+
+	@Test
+	public void testMixedLineEndings() throws IOException
+	{
+		read("data: a\r\ndata: b\rdata: c\n\r\n");
+		assertEquals(Collections.singletonList("a\nb\nc"), events);
+	}
+
+	@Test
+	public void testMultiLineData() throws IOException
+	{
+		read("data: {\"a\":\ndata: 1}\n\n");
+		assertEquals(Collections.singletonList("{\"a\":\n1}"), events);
+	}
+
+	@Test
+	public void testOnlyOneLeadingSpaceIsStripped() throws IOException
+	{
+		read("data:a\n\ndata:  b\n\n");
+		assertEquals(Arrays.asList("a", " b"), events);
+	}
+
+	@Test
+	public void testDataWithoutColonIsEmpty() throws IOException
+	{
+		read("data\n\n");
+		assertEquals(Collections.singletonList(""), events);
+	}
+
+	@Test
+	public void testEventType() throws IOException
+	{
+		read("event: ping\ndata: a\n\ndata: b\n\n");
+		assertEquals(Arrays.asList("ping", null), types);
+	}
+
+	@Test
+	public void testCommentsAndUnknownFieldsAreIgnored() throws IOException
+	{
+		read(": keepalive\n\nfoo: bar\ndata: a\n\n");
+		assertEquals(Collections.singletonList("a"), events);
+	}
+
+	@Test
+	public void testEventId() throws IOException
+	{
+		final SseReader reader = read("id: 7\ndata: a\n\n");
+		assertEquals("7", reader.getLastEventId());
+	}
+
+	@Test
+	public void testEventIdIsSetWithoutData() throws IOException
+	{
+		final SseReader reader = read("id: 7\ndata: a\n\nid: 8\n\n");
+		assertEquals("8", reader.getLastEventId());
+		assertEquals(Collections.singletonList("a"), events);
+	}
+
+	@Test
+	public void testEventIdIsOnlySetOnDispatch() throws IOException
+	{
+		final SseReader reader = read("id: 7\ndata: a\n\nid: 8\ndata: b\n");
+		assertEquals("7", reader.getLastEventId());
+	}
+
+	@Test
+	public void testNoEventId() throws IOException
+	{
+		assertNull(read("data: a\n\n").getLastEventId());
+	}
+
+	@Test
+	public void testRetry() throws IOException
+	{
+		read("retry: 2500\n\n");
+		assertEquals(Collections.singletonList(2500L), retries);
+	}
+
+	@Test
+	public void testInvalidRetryIsIgnored() throws IOException
+	{
+		read("retry: 25x\nretry:\nretry: -1\n\n");
+		assertEquals(Collections.emptyList(), retries);
+	}
+
+	@Test
+	public void testRetryOverflowSaturates() throws IOException
+	{
+		read("retry: 9223372036854775807\nretry: 9223372036854775808\nretry: 99999999999999999999999\n"
+			+ "retry: 99999999999999999999999x\n\n");
+		assertEquals(Arrays.asList(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE), retries);
+	}
+
+	@Test
+	public void testLeadingByteOrderMarkIsStripped() throws IOException
+	{
+		read("\uFEFFdata: a\n\n");
+		assertEquals(Collections.singletonList("a"), events);
+	}
+
+	@Test
+	public void testOnlyOneLeadingByteOrderMarkIsStripped() throws IOException
+	{
+		read("\uFEFF\uFEFFdata: a\n\ndata: b\n\n\uFEFFdata: c\n\n");
+		assertEquals(Collections.singletonList("b"), events);
+	}
+
+	@Test
+	public void testUnterminatedLastEventIsDiscarded() throws IOException
+	{
+		read("data: a\n\ndata: b\n");
+		assertEquals(Collections.singletonList("a"), events);
+	}
+
+	@Test
+	public void testUnterminatedLastLineIsDiscarded() throws IOException
+	{
+		read("data: a\n\ndata: b");
+		assertEquals(Collections.singletonList("a"), events);
+	}
+}
@@ -0,0 +1,186 @@
+package rsfost.ba_world_scouter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TopWorldsTest
+{
+	private static final long TIME = 1_750_000_000L;
+
+	private final WorldStateStore store = new WorldStateStore();
+	private final WorldStateStore.WorldState[] lookup = new WorldStateStore.WorldState[WorldStateStore.MAX_WORLDS];
+	private final TopWorlds topWorlds = new TopWorlds();
+	private final List<WorldStateStore.WorldState> out = new ArrayList<>();
+
+	@Test
+	public void testLowestYTiesBreakByPopulationThenRecencyThenWorldId()
+	{
+		topWorlds.configure(BaWorldScouterConfig.TopWorldsRanking.LOWEST_Y, false);
+		put(306, 5000, 10, TIME);
+		put(305, 5000, 10, TIME);
+		put(304, 5000, 10, TIME + 60);
+		put(303, 5000, 5, TIME);
+		put(302, 4000, 50, TIME);
+		assertEquals(List.of(302, 303, 304, 305, 306), top(10));
+	}
+
+	@Test
+	public void testLowestPopulationTiesBreakByYThenRecencyThenWorldId()
+	{
+		topWorlds.configure(BaWorldScouterConfig.TopWorldsRanking.LOWEST_POPULATION, false);
+		put(305, 5000, 10, TIME);
+		put(304, 5000, 10, TIME);
+		put(303, 5000, 10, TIME + 60);
+		put(302, 4000, 10, TIME);
+		put(301, 6000, 5, TIME);
+		assertEquals(List.of(301, 302, 303, 304, 305), top(10));
+	}
+
+	@Test
+	public void testMostRecentTiesBreakByYThenPopulationThenWorldId()
+	{
+		topWorlds.configure(BaWorldScouterConfig.TopWorldsRanking.MOST_RECENT, false);
+		put(305, 5000, 10, TIME);
+		put(304, 5000, 10, TIME);
+		put(303, 5000, 5, TIME);
+		put(302, 4000, 50, TIME);
+		put(301, 6000, 50, TIME + 60);
+		assertEquals(List.of(301, 302, 303, 304, 305), top(10));
+	}
+
+	@Test
+	public void testRanksByPredictedYWhenAsked()
+	{
+		topWorlds.configure(BaWorldScouterConfig.TopWorldsRanking.LOWEST_Y, true);
+		store.update(301, 4000, TIME, 6000, TIME + 60);
+		store.update(302, 5000, TIME, 5000, TIME + 60);
+		topWorlds.update(read(301));
+		topWorlds.update(read(302));
+		assertEquals(List.of(302, 301), top(10));
+	}
+
+	@Test
+	public void testZeroWorldsIsEmpty()
+	{
+		topWorlds.configure(BaWorldScouterConfig.TopWorldsRanking.LOWEST_Y, false);
+		put(301, 5000, 10, TIME);
+		assertTrue(topWorlds.top(1, out));
+		assertEquals(1, out.size());
+
+		assertTrue(topWorlds.top(0, out));
+		assertTrue(out.isEmpty());
+		assertFalse(topWorlds.top(0, out));
+	}
+
+	@Test
+	public void testNoWorldsIsEmpty()
+	{
+		topWorlds.configure(BaWorldScouterConfig.TopWorldsRanking.LOWEST_Y, false);
+		assertFalse(topWorlds.top(5, out));
+		assertTrue(out.isEmpty());
+	}
+
+	@Test
+	public void testUnknownAndStaleWorldsAreLeftOut()
+	{
+		topWorlds.configure(BaWorldScouterConfig.TopWorldsRanking.LOWEST_POPULATION, false);
+		put(301, 5000, 10, TIME);
+		put(302, 4000, WorldStateStore.UNKNOWN, TIME);
+		store.restore(new InstanceInfo(303,
+			new InstanceInfo.Coord(TIME, 3000), new InstanceInfo.Coord(TIME, 3000), TIME));
+		store.setWorldDetails(303, 1, null);
+		topWorlds.update(read(303));
+		assertEquals(List.of(301), top(10));
+
+		topWorlds.configure(BaWorldScouterConfig.TopWorldsRanking.LOWEST_Y, false);
+		topWorlds.update(read(301));
+		topWorlds.update(read(302));
+		topWorlds.update(read(303));
+		assertEquals(List.of(302, 301), top(10));
+	}
+
+	@Test
+	public void testUpdateAndRemoveReRank()
+	{
+		topWorlds.configure(BaWorldScouterConfig.TopWorldsRanking.LOWEST_Y, false);
+		put(301, 5000, 10, TIME);
+		put(302, 5100, 10, TIME);
+		put(303, 5200, 10, TIME);
+		assertEquals(List.of(301, 302), top(2));
+		assertFalse(topWorlds.top(2, out));
+
+		put(303, 4000, 10, TIME + 60);
+		assertEquals(List.of(303, 301), top(2));
+
+		topWorlds.remove(303);
+		topWorlds.remove(303);
+		assertEquals(List.of(301, 302), top(2));
+
+		// Becoming unknown drops a ranked world
+		put(301, WorldStateStore.UNKNOWN, 10, TIME + 120);
+		assertEquals(List.of(302), top(5));
+	}
+
+	@Test
+	public void testRandomUpdatesMatchAFullSort()
+	{
+		final Random random = new Random(24);
+		topWorlds.configure(BaWorldScouterConfig.TopWorldsRanking.LOWEST_Y, false);
+		final List<Integer> ranked = new ArrayList<>();
+		for (int i = 0; i < 2000; ++i)
+		{
+			final int worldId = 1 + random.nextInt(100);
+			if (random.nextInt(10) == 0)
+			{
+				topWorlds.remove(worldId);
+				ranked.remove(Integer.valueOf(worldId));
+			}
+			else
+			{
+				put(worldId, 4000 + random.nextInt(4) * 100, random.nextInt(3), TIME + random.nextInt(3));
+				if (!ranked.contains(worldId))
+				{
+					ranked.add(worldId);
+				}
+			}
+
+			ranked.sort(Comparator.<Integer>comparingInt(id -> lookup[id].getConfirmedY())
+				.thenComparingInt(id -> lookup[id].getPopulation())
+				.thenComparing(id -> lookup[id].getConfirmedTime(), Comparator.reverseOrder())
+				.thenComparingInt(id -> id));
+			assertEquals(ranked.subList(0, Math.min(5, ranked.size())), top(5));
+		}
+	}
+
+	private void put(int worldId, int y, int population, long time)
+	{
+		store.update(worldId, y, time, y, time);
+		store.setWorldDetails(worldId, population, null);
+		topWorlds.update(read(worldId));
+	}
+
+	private WorldStateStore.WorldState read(int worldId)
+	{
+		if (lookup[worldId] == null)
+		{
+			lookup[worldId] = new WorldStateStore.WorldState();
+		}
+		store.read(worldId, lookup[worldId]);
+		return lookup[worldId];
+	}
+
+	private List<Integer> top(int k)
+	{
+		topWorlds.top(k, out);
+		return out.stream().map(WorldStateStore.WorldState::getWorldId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,281 @@
+package rsfost.ba_world_scouter;
+
+import net.runelite.http.api.worlds.WorldRegion;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WorldFilterTest
+{
+	private static final long NOW_MILLIS = 1_750_000_000_000L;
+	private static final long NOW = NOW_MILLIS / 1000;
+
+	private final WorldStateStore store = new WorldStateStore();
+	private final WorldStateStore.WorldState row = new WorldStateStore.WorldState();
+	private final FilterConfig config = new FilterConfig();
+	private final WorldFilter filter = new WorldFilter();
+	private final BitSet matching = new BitSet();
+	private final BitSet scratch = new BitSet();
+
+	private static BitSet worlds(int... worldIds)
+	{
+		final BitSet set = new BitSet();
+		for (int worldId : worldIds)
+		{
+			set.set(worldId);
+		}
+		return set;
+	}
+
+	private void put(int worldId, int y, int population, WorldRegion region, long ageSeconds)
+	{
+		store.update(worldId, y, NOW - ageSeconds, y + 100, NOW - ageSeconds + 60);
+		store.setWorldDetails(worldId, population, region);
+		update(worldId);
+	}
+
+	private void update(int worldId)
+	{
+		store.read(worldId, row);
+		filter.update(row);
+	}
+
+	private void configure()
+	{
+		filter.configure(config);
+		filter.updateMinTime(NOW_MILLIS);
+	}
+
+	/**
+	 * Collects the matching worlds, checking that the single world check agrees.
+	 */
+	private BitSet collect()
+	{
+		filter.collect(matching, scratch);
+		for (int worldId = 1; worldId < 400; ++worldId)
+		{
+			assertEquals("world " + worldId, matching.get(worldId), filter.matches(worldId));
+		}
+		return (BitSet) matching.clone();
+	}
+
+	private void putDefaults()
+	{
+		put(301, 4000, 100, WorldRegion.UNITED_STATES_OF_AMERICA, 60);
+		put(302, 5000, 500, WorldRegion.UNITED_KINGDOM, 600);
+		put(303, 6000, 1000, WorldRegion.GERMANY, 3600);
+		put(304, 7000, WorldStateStore.UNKNOWN, null, 60);
+	}
+
+	@Test
+	public void testZeroMeansNoLimit()
+	{
+		configure();
+		putDefaults();
+		assertEquals(worlds(301, 302, 303, 304), collect());
+	}
+
+	@Test
+	public void testRegion()
+	{
+		putDefaults();
+		store.setLocation(301, -73);
+		update(301);
+
+		config.region = BaWorldScouterConfig.RegionFilter.UK;
+		configure();
+		assertEquals(worlds(302), collect());
+
+		config.region = BaWorldScouterConfig.RegionFilter.US;
+		configure();
+		assertEquals(worlds(301), collect());
+		config.region = BaWorldScouterConfig.RegionFilter.US_WEST;
+		configure();
+		assertEquals(worlds(301), collect());
+		config.region = BaWorldScouterConfig.RegionFilter.US_EAST;
+		configure();
+		assertEquals(worlds(), collect());
+
+		// A world's flag moving with its details
+		store.setWorldDetails(302, 500, WorldRegion.GERMANY);
+		update(302);
+		config.region = BaWorldScouterConfig.RegionFilter.GERMANY;
+		configure();
+		assertEquals(worlds(302, 303), collect());
+	}
+
+	@Test
+	public void testPopulationRange()
+	{
+		putDefaults();
+		config.minPopulation = 500;
+		configure();
+		assertEquals(worlds(302, 303), collect());
+
+		config.minPopulation = 0;
+		config.maxPopulation = 500;
+		configure();
+		// Unknown population is excluded once there is a bound
+		assertEquals(worlds(301, 302), collect());
+
+		config.minPopulation = 100;
+		config.maxPopulation = 100;
+		configure();
+		assertEquals(worlds(301), collect());
+	}
+
+	@Test
+	public void testYRange()
+	{
+		putDefaults();
+		config.minY = 5000;
+		config.maxY = 6000;
+		configure();
+		assertEquals(worlds(302, 303), collect());
+
+		config.minY = 0;
+		config.maxY = 4999;
+		configure();
+		assertEquals(worlds(301), collect());
+	}
+
+	@Test
+	public void testYRangeUsesShownY()
+	{
+		putDefaults();
+		config.maxY = 4050;
+		configure();
+		assertEquals(worlds(301), collect());
+
+		config.predicted = true;
+		assertTrue(filter.configure(config));
+		filter.updateMinTime(NOW_MILLIS);
+		for (int worldId = 301; worldId <= 304; ++worldId)
+		{
+			update(worldId);
+		}
+		// Predicted Y is 100 above the confirmed one
+		assertEquals(worlds(), collect());
+		assertFalse(filter.configure(config));
+	}
+
+	@Test
+	public void testAge()
+	{
+		putDefaults();
+		config.maxAge = 10;
+		configure();
+		assertEquals(worlds(301, 302, 304), collect());
+
+		// Time passing ages worlds out without any update
+		assertTrue(filter.updateMinTime(NOW_MILLIS + 60_000));
+		assertEquals(worlds(301, 304), collect());
+
+		config.maxAge = 0;
+		configure();
+		assertFalse(filter.updateMinTime(NOW_MILLIS + 60_000));
+		assertEquals(worlds(301, 302, 303, 304), collect());
+	}
+
+	@Test
+	public void testUpdatesMoveWorldsInAndOut()
+	{
+		config.minY = 5000;
+		configure();
+		putDefaults();
+		assertEquals(worlds(302, 303, 304), collect());
+
+		put(301, 5500, 100, WorldRegion.UNITED_STATES_OF_AMERICA, 0);
+		put(303, 4500, 1000, WorldRegion.GERMANY, 0);
+		assertEquals(worlds(301, 302, 304), collect());
+
+		filter.remove(302);
+		filter.remove(302);
+		assertEquals(worlds(301, 304), collect());
+	}
+
+	@Test
+	public void testFilterChangeDiff()
+	{
+		configure();
+		putDefaults();
+		final BitSet visible = collect();
+
+		// What the list has to insert and remove is the difference of the two match sets
+		config.minY = 5000;
+		config.maxPopulation = 700;
+		configure();
+		final BitSet now = collect();
+		final BitSet removed = (BitSet) visible.clone();
+		removed.andNot(now);
+		final BitSet inserted = (BitSet) now.clone();
+		inserted.andNot(visible);
+		assertEquals(worlds(301, 303, 304), removed);
+		assertEquals(worlds(), inserted);
+
+		config.minY = 0;
+		config.maxPopulation = 0;
+		config.region = BaWorldScouterConfig.RegionFilter.GERMANY;
+		configure();
+		final BitSet changed = collect();
+		changed.xor(now);
+		assertEquals(worlds(302, 303), changed);
+	}
+
+	private static class FilterConfig implements BaWorldScouterConfig
+	{
+		private RegionFilter region = RegionFilter.ANY;
+		private int minPopulation;
+		private int maxPopulation;
+		private int minY;
+		private int maxY;
+		private int maxAge;
+		private boolean predicted;
+
+		@Override
+		public RegionFilter filterRegion()
+		{
+			return region;
+		}
+
+		@Override
+		public int filterMinPopulation()
+		{
+			return minPopulation;
+		}
+
+		@Override
+		public int filterMaxPopulation()
+		{
+			return maxPopulation;
+		}
+
+		@Override
+		public int filterMinY()
+		{
+			return minY;
+		}
+
+		@Override
+		public int filterMaxY()
+		{
+			return maxY;
+		}
+
+		@Override
+		public int filterMaxAge()
+		{
+			return maxAge;
+		}
+
+		@Override
+		public boolean showPredictedValues()
+		{
+			return predicted;
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.Gson;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WorldReportOutboxTest
+{
+	private static final long START = 1_750_000_000_000L;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final ManualScheduler scheduler = new ManualScheduler(START);
+	private final List<Call> calls = new ArrayList<>();
+	// Whether the server rejects every report straight away
+	private boolean failing;
+
+	private WorldReportOutbox outbox()
+	{
+		return new WorldReportOutbox(scheduler, (report, onDone, onRetry) -> {
+			calls.add(new Call(report, onDone, onRetry, scheduler.now() - START));
+			if (failing)
+			{
+				onRetry.run();
+			}
+		}, new Gson(), file(), scheduler::now);
+	}
+
+	private File file()
+	{
+		return new File(folder.getRoot(), "outbox.json");
+	}
+
+	private WorldReport report(int worldId, int x, long ageMillis)
+	{
+		return new WorldReport(worldId, x, 0, 7509, scheduler.now() - ageMillis);
+	}
+
+	private List<Integer> sentX()
+	{
+		return calls.stream().map(call -> call.report.getX()).sorted().collect(Collectors.toList());
+	}
+
+	@Test
+	public void testKeepsLatestReportPerWorld()
+	{
+		final WorldReportOutbox outbox = outbox();
+		outbox.start();
+		outbox.offer(report(301, 1, 0));
+		outbox.offer(report(301, 2, 0));
+		outbox.offer(report(302, 3, 0));
+		// Observed earlier than the one already queued, so it doesn't replace it
+		outbox.offer(report(302, 4, 1000));
+		assertEquals(2, outbox.getPendingCount());
+
+		scheduler.runPending();
+		assertEquals(List.of(2, 3), sentX());
+	}
+
+	@Test
+	public void testFlushesOncePerInterval()
+	{
+		final WorldReportOutbox outbox = outbox();
+		outbox.start();
+		outbox.offer(report(301, 1, 0));
+		scheduler.runPending();
+		calls.get(0).onDone.run();
+
+		scheduler.advance(10);
+		outbox.offer(report(302, 2, 0));
+		scheduler.advance(500);
+		assertEquals(1, calls.size());
+		scheduler.advance(500);
+		assertEquals(2, calls.size());
+		assertEquals(1000, calls.get(1).atMillis);
+	}
+
+	@Test
+	public void testDropsOldReports()
+	{
+		final WorldReportOutbox outbox = outbox();
+		outbox.start();
+		outbox.offer(report(301, 1, 91_000));
+		scheduler.runPending();
+		assertTrue(calls.isEmpty());
+		assertEquals(0, outbox.getPendingCount());
+	}
+
+	@Test
+	public void testBacksOffUntilTooOld()
+	{
+		failing = true;
+		final WorldReportOutbox outbox = outbox();
+		outbox.start();
+		outbox.offer(report(301, 1, 0));
+		scheduler.advance(120_000);
+
+		// Doubling from a second, capped at 30 seconds, and given up on once 90 seconds old
+		final List<Long> sentAt = calls.stream().map(call -> call.atMillis).collect(Collectors.toList());
+		assertEquals(List.of(0L, 1000L, 3000L, 7000L, 15000L, 31000L, 61000L), sentAt);
+		assertEquals(7, calls.get(calls.size() - 1).report.getAttempts());
+		assertEquals(0, outbox.getPendingCount());
+	}
+
+	@Test
+	public void testNewerReportReplacesOneBeingRetried()
+	{
+		failing = true;
+		final WorldReportOutbox outbox = outbox();
+		outbox.start();
+		outbox.offer(report(301, 1, 0));
+		scheduler.runPending();
+		failing = false;
+		outbox.offer(report(301, 2, 0));
+
+		// Sent on the next flush rather than after the first one's backoff
+		scheduler.advance(1000);
+		assertEquals(List.of(1, 2), sentX());
+		calls.get(1).onDone.run();
+		assertEquals(0, outbox.getPendingCount());
+	}
+
+	@Test
+	public void testKeepsInFlightReportsAcrossRestart()
+	{
+		final WorldReportOutbox outbox = outbox();
+		outbox.start();
+		outbox.offer(report(301, 1, 0));
+		scheduler.runPending();
+		assertEquals(1, calls.size());
+
+		outbox.stop();
+		assertEquals(0, outbox.getPendingCount());
+		// Saved from the executor, not from the caller
+		assertFalse(file().exists());
+		scheduler.runPending();
+		assertTrue(file().exists());
+
+		// The old session's request failing late changes nothing
+		calls.get(0).onRetry.run();
+		assertEquals(0, scheduler.queued());
+
+		scheduler.advance(5000);
+		final WorldReportOutbox restarted = outbox();
+		restarted.start();
+		assertEquals(1, restarted.getPendingCount());
+		scheduler.runPending();
+		assertEquals(2, calls.size());
+		assertEquals(301, calls.get(1).report.getWorldId());
+
+		calls.get(1).onDone.run();
+		assertEquals(0, restarted.getPendingCount());
+	}
+
+	@Test
+	public void testRestoreDropsOldReports()
+	{
+		final WorldReportOutbox outbox = outbox();
+		outbox.start();
+		outbox.offer(report(301, 1, 0));
+		outbox.stop();
+		scheduler.runPending();
+
+		scheduler.advance(91_000);
+		final WorldReportOutbox restarted = outbox();
+		restarted.start();
+		assertEquals(0, restarted.getPendingCount());
+	}
+
+	@Test
+	public void testStopWithNothingPendingRemovesFile()
+	{
+		final WorldReportOutbox outbox = outbox();
+		outbox.start();
+		outbox.offer(report(301, 1, 0));
+		outbox.stop();
+		scheduler.runPending();
+		assertTrue(file().exists());
+
+		final WorldReportOutbox restarted = outbox();
+		restarted.start();
+		scheduler.runPending();
+		calls.get(0).onDone.run();
+		restarted.stop();
+		scheduler.runPending();
+		assertFalse(file().exists());
+	}
+
+	private static class Call
+	{
+		private final WorldReport report;
+		private final Runnable onDone;
+		private final Runnable onRetry;
+		private final long atMillis;
+
+		Call(WorldReport report, Runnable onDone, Runnable onRetry, long atMillis)
+		{
+			this.report = report;
+			this.onDone = onDone;
+			this.onRetry = onRetry;
+			this.atMillis = atMillis;
+		}
+	}
+}
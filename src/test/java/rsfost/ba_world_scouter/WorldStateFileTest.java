@@ -0,0 +1,174 @@
+package rsfost.ba_world_scouter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class WorldStateFileTest
+{
+	private static final InstanceInfo WORLD_301 = info(301, 5200, 1_750_000_000L, 5250, 1_750_000_060L);
+	private static final InstanceInfo WORLD_302 = info(302, -1, 0, 4800, 1_750_000_120L);
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private static InstanceInfo info(int worldId, int confirmedY, long confirmedTime, int predictedY, long predictedTime)
+	{
+		return new InstanceInfo(worldId,
+			new InstanceInfo.Coord(confirmedTime, confirmedY),
+			new InstanceInfo.Coord(predictedTime, predictedY),
+			confirmedTime);
+	}
+
+	private File file()
+	{
+		return new File(new File(folder.getRoot(), "ba-world-scouter"), "worlds.bin");
+	}
+
+	private static void write(WorldStateFile stateFile, InstanceInfo info) throws IOException
+	{
+		stateFile.write(info.getWorldId(), info.getConfirmed().getY(), info.getConfirmed().getTime(),
+			info.getPrediction().getY(), info.getPrediction().getTime());
+	}
+
+	/**
+	 * Writes both worlds and flushes them, for a later instance to read back.
+	 */
+	private void writeBoth() throws IOException
+	{
+		final WorldStateFile stateFile = new WorldStateFile(file());
+		write(stateFile, WORLD_301);
+		write(stateFile, WORLD_302);
+		stateFile.force();
+	}
+
+	private void patchFile(long offset, int value) throws IOException
+	{
+		try (RandomAccessFile raf = new RandomAccessFile(file(), "rw"))
+		{
+			raf.seek(offset);
+			raf.writeInt(value);
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		writeBoth();
+		final WorldStateFile stateFile = new WorldStateFile(file());
+		assertEquals(WORLD_301, stateFile.read(301));
+		assertEquals(WORLD_302, stateFile.read(302));
+		assertEquals(List.of(WORLD_301, WORLD_302), stateFile.readAll());
+		assertEquals(WorldStateFile.FILE_SIZE, file().length());
+	}
+
+	@Test
+	public void testOverwrite() throws IOException
+	{
+		final WorldStateFile stateFile = new WorldStateFile(file());
+		write(stateFile, WORLD_301);
+		final InstanceInfo newer = info(301, 5100, 1_750_000_300L, 5150, 1_750_000_360L);
+		write(stateFile, newer);
+		assertEquals(newer, stateFile.read(301));
+	}
+
+	@Test
+	public void testEmptyAndInvalidSlots() throws IOException
+	{
+		final WorldStateFile stateFile = new WorldStateFile(file());
+		write(stateFile, info(0, 1, 1, 1, 1));
+		write(stateFile, info(WorldStateStore.MAX_WORLDS, 1, 1, 1, 1));
+		assertNull(stateFile.read(301));
+		assertNull(stateFile.read(0));
+		assertNull(stateFile.read(WorldStateStore.MAX_WORLDS));
+		assertEquals(List.of(), stateFile.readAll());
+	}
+
+	@Test
+	public void testClear() throws IOException
+	{
+		writeBoth();
+		final WorldStateFile stateFile = new WorldStateFile(file());
+		stateFile.clear(301);
+		stateFile.clear(303);
+		stateFile.force();
+
+		assertEquals(List.of(WORLD_302), new WorldStateFile(file()).readAll());
+	}
+
+	@Test
+	public void testCorruptRecordIsDiscarded() throws IOException
+	{
+		writeBoth();
+		// The confirmed Y of world 301
+		patchFile(WorldStateFile.HEADER_SIZE + 301L * WorldStateFile.RECORD_SIZE + 4, 4000);
+
+		final WorldStateFile stateFile = new WorldStateFile(file());
+		assertNull(stateFile.read(301));
+		assertEquals(WORLD_302, stateFile.read(302));
+	}
+
+	@Test
+	public void testRecordInWrongSlotIsDiscarded() throws IOException
+	{
+		writeBoth();
+		patchFile(WorldStateFile.HEADER_SIZE + 301L * WorldStateFile.RECORD_SIZE, 300);
+		assertNull(new WorldStateFile(file()).read(301));
+	}
+
+	@Test
+	public void testResizedFileIsReinitialised() throws IOException
+	{
+		writeBoth();
+		try (RandomAccessFile raf = new RandomAccessFile(file(), "rw"))
+		{
+			raf.setLength(WorldStateFile.FILE_SIZE + 8);
+		}
+
+		final WorldStateFile stateFile = new WorldStateFile(file());
+		assertEquals(List.of(), stateFile.readAll());
+		assertEquals(WorldStateFile.FILE_SIZE, file().length());
+	}
+
+	@Test
+	public void testTruncatedFileIsReinitialised() throws IOException
+	{
+		writeBoth();
+		try (RandomAccessFile raf = new RandomAccessFile(file(), "rw"))
+		{
+			raf.setLength(WorldStateFile.FILE_SIZE / 2);
+		}
+		assertEquals(List.of(), new WorldStateFile(file()).readAll());
+	}
+
+	@Test
+	public void testOtherVersionIsReinitialised() throws IOException
+	{
+		writeBoth();
+		patchFile(4, 1);
+
+		final WorldStateFile stateFile = new WorldStateFile(file());
+		assertEquals(List.of(), stateFile.readAll());
+
+		// The header is rewritten, so the next instance keeps what this one writes
+		write(stateFile, WORLD_301);
+		stateFile.force();
+		assertEquals(List.of(WORLD_301), new WorldStateFile(file()).readAll());
+	}
+
+	@Test
+	public void testHeaderChecksumMismatchIsReinitialised() throws IOException
+	{
+		writeBoth();
+		patchFile(16, 0);
+		assertEquals(List.of(), new WorldStateFile(file()).readAll());
+	}
+}
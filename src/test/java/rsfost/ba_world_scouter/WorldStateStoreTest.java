@@ -0,0 +1,106 @@
+package rsfost.ba_world_scouter;
+
+import net.runelite.http.api.worlds.WorldRegion;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WorldStateStoreTest
+{
+	private final WorldStateStore store = new WorldStateStore();
+	private final WorldStateStore.WorldState state = new WorldStateStore.WorldState();
+
+	private static InstanceInfo info(int worldId, int y, long time)
+	{
+		return new InstanceInfo(worldId, new InstanceInfo.Coord(time, y), new InstanceInfo.Coord(time + 60, y + 50), time);
+	}
+
+	@Test
+	public void testUpdateAndRead()
+	{
+		store.update(330, 5200, 100, 5250, 160);
+		assertTrue(store.read(330, state));
+		assertEquals(330, state.getWorldId());
+		assertEquals(5200, state.getConfirmedY());
+		assertEquals(100, state.getConfirmedTime());
+		assertEquals(5250, state.getY(true));
+		assertEquals(160, state.getPredictedTime());
+		assertEquals(WorldStateStore.UNKNOWN, state.getPopulation());
+		assertNull(state.getRegion());
+		assertFalse(state.isStale());
+	}
+
+	@Test
+	public void testUnknownWorld()
+	{
+		assertFalse(store.read(330, state));
+		assertFalse(store.isPresent(330));
+	}
+
+	@Test
+	public void testInvalidWorldsAreIgnored()
+	{
+		store.update(0, 5200, 100, 5250, 160);
+		store.update(WorldStateStore.MAX_WORLDS, 5200, 100, 5250, 160);
+		assertFalse(store.read(0, state));
+		assertFalse(store.read(WorldStateStore.MAX_WORLDS, state));
+		assertFalse(store.setWorldDetails(-1, 100, WorldRegion.UNITED_KINGDOM));
+	}
+
+	@Test
+	public void testPreviousPosition()
+	{
+		store.update(330, 5200, 100, 5250, 160);
+		store.update(330, 5100, 200, 5150, 260);
+		store.read(330, state);
+		assertEquals(5200, state.getPreviousY());
+		assertEquals(100, state.getPreviousTime());
+	}
+
+	@Test
+	public void testRestoreDoesNotReplaceNewerData()
+	{
+		store.update(330, 5200, 100, 5250, 160);
+		assertFalse(store.restore(info(330, 4000, 50)));
+		assertTrue(store.restore(info(331, 4000, 50)));
+
+		store.read(330, state);
+		assertEquals(5200, state.getConfirmedY());
+		store.read(331, state);
+		assertEquals(4000, state.getConfirmedY());
+		assertTrue(state.isStale());
+	}
+
+	@Test
+	public void testRetain()
+	{
+		store.update(330, 5200, 100, 5250, 160);
+		store.update(331, 5200, 100, 5250, 160);
+		final BitSet keep = new BitSet();
+		keep.set(331);
+		store.retain(keep);
+		assertFalse(store.isPresent(330));
+		assertTrue(store.isPresent(331));
+	}
+
+	@Test
+	public void testWorldDetailsReportChanges()
+	{
+		assertTrue(store.setWorldDetails(330, 100, WorldRegion.UNITED_KINGDOM));
+		assertFalse(store.setWorldDetails(330, 100, WorldRegion.UNITED_KINGDOM));
+		assertTrue(store.setWorldDetails(330, 101, WorldRegion.UNITED_KINGDOM));
+		assertTrue(store.setLocation(330, -42));
+		assertFalse(store.setLocation(330, -42));
+
+		store.update(330, 5200, 100, 5250, 160);
+		store.read(330, state);
+		assertEquals(101, state.getPopulation());
+		assertEquals(WorldRegion.UNITED_KINGDOM, state.getRegion());
+		assertEquals(-42, state.getLocation());
+	}
+}
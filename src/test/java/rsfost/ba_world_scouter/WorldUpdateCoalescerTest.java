@@ -0,0 +1,100 @@
+package rsfost.ba_world_scouter;
+
+import org.junit.Test;
+
+import javax.swing.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorldUpdateCoalescerTest
+{
+	private static final int INTERVAL_MILLIS = 100;
+
+	private final ManualScheduler scheduler = new ManualScheduler(0);
+	private final ScouterMetrics metrics = new ScouterMetrics();
+	private final List<BitSet> batches = new ArrayList<>();
+	private final WorldUpdateCoalescer coalescer = new WorldUpdateCoalescer(scheduler, () -> INTERVAL_MILLIS,
+		batch -> batches.add((BitSet) batch.clone()), metrics);
+
+	private static BitSet worlds(int... worldIds)
+	{
+		final BitSet set = new BitSet();
+		for (int worldId : worldIds)
+		{
+			set.set(worldId);
+		}
+		return set;
+	}
+
+	/**
+	 * Lets the interval pass and waits for the drain it queues on the EDT.
+	 */
+	private void drain() throws InterruptedException, InvocationTargetException
+	{
+		scheduler.advance(INTERVAL_MILLIS);
+		SwingUtilities.invokeAndWait(() -> {});
+	}
+
+	@Test
+	public void testOffersForOneWorldDrainOnce() throws Exception
+	{
+		for (int i = 0; i < 10; ++i)
+		{
+			coalescer.offer(301);
+		}
+		assertEquals(1, scheduler.queued());
+
+		drain();
+		assertEquals(List.of(worlds(301)), batches);
+		assertEquals(10, metrics.getUpdatesOffered());
+		assertEquals(9, metrics.getUpdatesCoalesced());
+		assertEquals(1, metrics.getUpdateBatchWorlds().getCount());
+	}
+
+	@Test
+	public void testWorldsInOneIntervalShareABatch() throws Exception
+	{
+		coalescer.offer(301);
+		coalescer.offer(302);
+		coalescer.offer(301);
+		drain();
+		assertEquals(List.of(worlds(301, 302)), batches);
+		assertEquals(1, metrics.getUpdatesCoalesced());
+	}
+
+	@Test
+	public void testOfferAfterDrainStartsNewBatch() throws Exception
+	{
+		coalescer.offer(301);
+		drain();
+		coalescer.offer(301);
+		assertEquals(1, scheduler.queued());
+		drain();
+		assertEquals(List.of(worlds(301), worlds(301)), batches);
+		assertEquals(0, metrics.getUpdatesCoalesced());
+	}
+
+	@Test
+	public void testInvalidWorldsAreIgnored() throws Exception
+	{
+		coalescer.offer(0);
+		coalescer.offer(WorldStateStore.MAX_WORLDS);
+		assertEquals(0, scheduler.queued());
+		assertEquals(0, metrics.getUpdatesOffered());
+	}
+
+	@Test
+	public void testNothingIsAppliedAfterStop() throws Exception
+	{
+		coalescer.offer(301);
+		coalescer.stop();
+		coalescer.offer(302);
+		drain();
+		assertEquals(List.of(), batches);
+		assertEquals(1, metrics.getUpdatesOffered());
+	}
+}
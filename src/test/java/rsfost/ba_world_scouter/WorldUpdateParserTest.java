@@ -0,0 +1,157 @@
+package rsfost.ba_world_scouter;
+
+import com.google.gson.stream.MalformedJsonException;
+import okio.Buffer;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WorldUpdateParserTest
+{
+	private static final String CONFIRMED = "\"confirmed\":{\"time\":100,\"y\":5200}";
+	private static final String PREDICTION = "\"prediction\":{\"time\":160,\"y\":5250}";
+
+	private final WorldUpdateParser parser = new WorldUpdateParser();
+
+	private boolean parse(String json) throws IOException
+	{
+		return parser.parse(new Buffer().writeUtf8(json));
+	}
+
+	@Test
+	public void testComplete() throws IOException
+	{
+		assertTrue(parse("{\"worldId\":330," + CONFIRMED + "," + PREDICTION + ",\"time\":100}"));
+		assertEquals(330, parser.getWorldId());
+		assertEquals(5200, parser.getConfirmedY());
+		assertEquals(100, parser.getConfirmedTime());
+		assertEquals(5250, parser.getPredictedY());
+		assertEquals(160, parser.getPredictedTime());
+	}
+
+	@Test
+	public void testWhitespace() throws IOException
+	{
+		assertTrue(parse(" {\n\t\"worldId\" : 330 ,\r\n \"confirmed\" : { \"time\" : 100 , \"y\" : 5200 } ,"
+			+ " \"prediction\" : { \"y\" : 5250 , \"time\" : 160 } } "));
+		assertEquals(330, parser.getWorldId());
+		assertEquals(5250, parser.getPredictedY());
+	}
+
+	@Test
+	public void testNestedUnknownFieldsAreSkipped() throws IOException
+	{
+		assertTrue(parse("{\"extra\":{\"a\":[1,{\"b\":\"}]\"}],\"c\":null},\"worldId\":330,"
+			+ "\"confirmed\":{\"meta\":[true,false],\"time\":100,\"y\":5200}," + PREDICTION + ",\"flag\":true}"));
+		assertEquals(330, parser.getWorldId());
+		assertEquals(5200, parser.getConfirmedY());
+	}
+
+	@Test
+	public void testEscapedStringsAreSkipped() throws IOException
+	{
+		assertTrue(parse("{\"name\":\"a \\\"quoted\\\" } value\\\\\",\"we\\\"ird\":1,\"worldId\":330,"
+			+ CONFIRMED + "," + PREDICTION + "}"));
+		assertEquals(330, parser.getWorldId());
+	}
+
+	@Test
+	public void testFractionsAreTruncated() throws IOException
+	{
+		assertTrue(parse("{\"worldId\":330,\"confirmed\":{\"time\":100,\"y\":5200.75},"
+			+ "\"prediction\":{\"time\":160,\"y\":-3}}"));
+		assertEquals(5200, parser.getConfirmedY());
+		assertEquals(-3, parser.getPredictedY());
+	}
+
+	@Test
+	public void testMissingWorldId() throws IOException
+	{
+		assertFalse(parse("{" + CONFIRMED + "," + PREDICTION + "}"));
+	}
+
+	@Test
+	public void testMissingCoordinate() throws IOException
+	{
+		assertFalse(parse("{\"worldId\":330," + CONFIRMED + "}"));
+	}
+
+	@Test
+	public void testNullCoordinate() throws IOException
+	{
+		assertFalse(parse("{\"worldId\":330," + CONFIRMED + ",\"prediction\":null}"));
+	}
+
+	@Test
+	public void testCoordinateMissingY() throws IOException
+	{
+		assertFalse(parse("{\"worldId\":330," + CONFIRMED + ",\"prediction\":{\"time\":160}}"));
+	}
+
+	@Test
+	public void testEmptyObject() throws IOException
+	{
+		assertFalse(parse("{}"));
+	}
+
+	@Test
+	public void testReusedAfterIncompleteUpdate() throws IOException
+	{
+		assertTrue(parse("{\"worldId\":330," + CONFIRMED + "," + PREDICTION + "}"));
+		assertFalse(parse("{\"worldId\":331," + CONFIRMED + "}"));
+		assertTrue(parse("{\"worldId\":332," + CONFIRMED + "," + PREDICTION + "}"));
+		assertEquals(332, parser.getWorldId());
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testTruncated() throws IOException
+	{
+		parse("{\"worldId\":330,\"confirmed\":{\"time\":100");
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testTruncatedAfterName() throws IOException
+	{
+		parse("{\"worldId\"");
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testUnterminatedString() throws IOException
+	{
+		parse("{\"worldId\":330,\"name\":\"abc");
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testMissingColon() throws IOException
+	{
+		parse("{\"worldId\" 330}");
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testMissingComma() throws IOException
+	{
+		parse("{\"worldId\":330 " + CONFIRMED + "}");
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testNotAnObject() throws IOException
+	{
+		parse("[330]");
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testNotANumber() throws IOException
+	{
+		parse("{\"worldId\":\"330\"}");
+	}
+
+	@Test(expected = MalformedJsonException.class)
+	public void testEmpty() throws IOException
+	{
+		parse("");
+	}
+}
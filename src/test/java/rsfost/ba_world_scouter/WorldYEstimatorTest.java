@@ -0,0 +1,139 @@
+package rsfost.ba_world_scouter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorldYEstimatorTest
+{
+	private static final int WORLD = 301;
+	private static final long T = 1_750_000_000L;
+	private static final long T_MILLIS = T * 1000;
+
+	private final WorldStateStore store = new WorldStateStore();
+
+	private WorldStateStore.WorldState state()
+	{
+		final WorldStateStore.WorldState state = new WorldStateStore.WorldState();
+		store.read(WORLD, state);
+		return state;
+	}
+
+	/**
+	 * A world confirmed at 5000 at T that the server predicts will reach {@code predictedY}
+	 * {@code predictedAfter} seconds later, with no earlier position.
+	 */
+	private WorldStateStore.WorldState predicted(int predictedY, long predictedAfter)
+	{
+		store.update(WORLD, 5000, T, predictedY, T + predictedAfter);
+		return state();
+	}
+
+	/**
+	 * A world confirmed at {@code previousY} a minute before T and at 5000 at T.
+	 */
+	private WorldStateStore.WorldState withHistory(int previousY, int predictedY, long predictedAfter)
+	{
+		store.update(WORLD, previousY, T - 60, previousY, T - 60);
+		store.update(WORLD, 5000, T, predictedY, T + predictedAfter);
+		return state();
+	}
+
+	@Test
+	public void testExtendsPrediction()
+	{
+		final WorldStateStore.WorldState state = predicted(5600, 60);
+		assertEquals(5000, WorldYEstimator.estimateY(state, T_MILLIS));
+		assertEquals(5300, WorldYEstimator.estimateY(state, T_MILLIS + 30_000));
+		assertEquals(5900, WorldYEstimator.estimateY(state, T_MILLIS + 90_000));
+	}
+
+	@Test
+	public void testPredictionIsPreferredOverHistory()
+	{
+		// History climbs at 10 Y a second, the prediction falls at 10 Y a second
+		final WorldStateStore.WorldState state = withHistory(4400, 4400, 60);
+		assertEquals(4700, WorldYEstimator.estimateY(state, T_MILLIS + 30_000));
+	}
+
+	@Test
+	public void testFallsBackToHistoryWithoutPredictionAhead()
+	{
+		assertEquals(5300, WorldYEstimator.estimateY(withHistory(4400, 9999, 0), T_MILLIS + 30_000));
+		assertEquals(5300, WorldYEstimator.estimateY(withHistory(4400, 9999, -30), T_MILLIS + 30_000));
+	}
+
+	@Test
+	public void testHoldsConfirmedYWithoutATrend()
+	{
+		final WorldStateStore.WorldState state = predicted(9999, 0);
+		assertEquals(5000, WorldYEstimator.estimateY(state, T_MILLIS + 30_000));
+		assertEquals(5000, WorldYEstimator.estimateY(state, T_MILLIS + 3_600_000));
+	}
+
+	@Test
+	public void testClampsToTenMinutes()
+	{
+		final WorldStateStore.WorldState state = predicted(5060, 60);
+		assertEquals(5599, WorldYEstimator.estimateY(state, T_MILLIS + 599_000));
+		assertEquals(5600, WorldYEstimator.estimateY(state, T_MILLIS + 600_000));
+		assertEquals(5600, WorldYEstimator.estimateY(state, T_MILLIS + 1_200_000));
+	}
+
+	@Test
+	public void testDoesNotExtendBackwards()
+	{
+		assertEquals(5000, WorldYEstimator.estimateY(predicted(5600, 60), T_MILLIS - 30_000));
+	}
+
+	@Test
+	public void testConfidenceByAge()
+	{
+		final WorldStateStore.WorldState state = predicted(5600, 60);
+		assertEquals(WorldYEstimator.Confidence.HIGH, WorldYEstimator.confidence(state, T_MILLIS + 120_000));
+		assertEquals(WorldYEstimator.Confidence.MEDIUM, WorldYEstimator.confidence(state, T_MILLIS + 120_001));
+		assertEquals(WorldYEstimator.Confidence.MEDIUM, WorldYEstimator.confidence(state, T_MILLIS + 600_000));
+		assertEquals(WorldYEstimator.Confidence.LOW, WorldYEstimator.confidence(state, T_MILLIS + 600_001));
+	}
+
+	@Test
+	public void testConfidenceWithoutATrend()
+	{
+		final WorldStateStore.WorldState state = predicted(9999, 0);
+		assertEquals(WorldYEstimator.Confidence.HIGH, WorldYEstimator.confidence(state, T_MILLIS + 60_000));
+		assertEquals(WorldYEstimator.Confidence.LOW, WorldYEstimator.confidence(state, T_MILLIS + 180_000));
+	}
+
+	@Test
+	public void testDisagreeingTrendsLowerConfidence()
+	{
+		// Opposite directions
+		WorldStateStore.WorldState state = withHistory(4400, 4400, 60);
+		assertEquals(WorldYEstimator.Confidence.MEDIUM, WorldYEstimator.confidence(state, T_MILLIS + 60_000));
+		assertEquals(WorldYEstimator.Confidence.LOW, WorldYEstimator.confidence(state, T_MILLIS + 180_000));
+
+		// More than twice as steep
+		state = withHistory(4400, 6300, 60);
+		assertEquals(WorldYEstimator.Confidence.MEDIUM, WorldYEstimator.confidence(state, T_MILLIS + 60_000));
+	}
+
+	@Test
+	public void testAgreeingTrendsKeepConfidence()
+	{
+		// Exactly twice as steep still agrees
+		WorldStateStore.WorldState state = withHistory(4400, 6200, 60);
+		assertEquals(WorldYEstimator.Confidence.HIGH, WorldYEstimator.confidence(state, T_MILLIS + 60_000));
+		assertEquals(WorldYEstimator.Confidence.MEDIUM, WorldYEstimator.confidence(state, T_MILLIS + 180_000));
+
+		state = withHistory(5000, 5000, 60);
+		assertEquals(WorldYEstimator.Confidence.HIGH, WorldYEstimator.confidence(state, T_MILLIS + 60_000));
+	}
+
+	@Test
+	public void testStaleIsLowConfidence()
+	{
+		store.restore(new InstanceInfo(WORLD,
+			new InstanceInfo.Coord(T, 5000), new InstanceInfo.Coord(T + 60, 5600), T));
+		assertEquals(WorldYEstimator.Confidence.LOW, WorldYEstimator.confidence(state(), T_MILLIS));
+	}
+}
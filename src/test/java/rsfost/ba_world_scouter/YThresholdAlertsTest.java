@@ -0,0 +1,163 @@
+package rsfost.ba_world_scouter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class YThresholdAlertsTest
+{
+	private static final long START = 1_750_000_000_000L;
+	private static final int THRESHOLD = 5000;
+
+	private final WorldStateStore store = new WorldStateStore();
+	private final List<String> alerts = new ArrayList<>();
+	private long now = START;
+	private final YThresholdAlerts yAlerts = new YThresholdAlerts(store,
+		(worldId, y, threshold) -> alerts.add(worldId + ":" + y + ":" + threshold), () -> now);
+
+	@Before
+	public void setUp()
+	{
+		yAlerts.setThreshold(THRESHOLD);
+	}
+
+	private void see(int worldId, int y)
+	{
+		see(worldId, y, y);
+	}
+
+	private void see(int worldId, int confirmedY, int predictedY)
+	{
+		final long seconds = now / 1000;
+		store.update(worldId, confirmedY, seconds, predictedY, seconds + 60);
+		yAlerts.update(worldId);
+	}
+
+	@Test
+	public void testAlertsOnCrossing()
+	{
+		see(301, 5200);
+		see(301, 5000);
+		assertEquals(List.of(), alerts);
+		see(301, 4999);
+		assertEquals(List.of("301:4999:5000"), alerts);
+
+		// Staying below doesn't alert again
+		now += 120_000;
+		see(301, 4800);
+		assertEquals(1, alerts.size());
+	}
+
+	@Test
+	public void testFirstSightingIsSilent()
+	{
+		see(301, 4000);
+		see(302, 4500, 4500);
+		assertEquals(List.of(), alerts);
+
+		see(303, 5500);
+		see(303, 4500);
+		assertEquals(List.of("303:4500:5000"), alerts);
+	}
+
+	@Test
+	public void testRearmsOnlyPastTheMargin()
+	{
+		see(301, 5200);
+		see(301, 4900);
+		now += 120_000;
+
+		// Back above the threshold, but not by the margin
+		see(301, 5049);
+		see(301, 4900);
+		assertEquals(1, alerts.size());
+
+		see(301, 5050);
+		see(301, 4900);
+		assertEquals(2, alerts.size());
+	}
+
+	@Test
+	public void testCooldown()
+	{
+		see(301, 5200);
+		see(301, 4900);
+
+		now += 59_999;
+		see(301, 5100);
+		see(301, 4900);
+		assertEquals(1, alerts.size());
+
+		// The crossing that was held back doesn't alert late; the next one does
+		now += 1;
+		see(301, 4900);
+		assertEquals(1, alerts.size());
+		see(301, 5100);
+		see(301, 4900);
+		assertEquals(2, alerts.size());
+	}
+
+	@Test
+	public void testCooldownIsPerWorld()
+	{
+		see(301, 5200);
+		see(302, 5200);
+		see(301, 4900);
+		see(302, 4900);
+		assertEquals(List.of("301:4900:5000", "302:4900:5000"), alerts);
+	}
+
+	@Test
+	public void testUsesLowerOfConfirmedAndPredicted()
+	{
+		see(301, 5200, 5200);
+		see(301, 5200, 4800);
+		see(302, 5200, 5200);
+		see(302, 4700, WorldStateStore.UNKNOWN);
+		assertEquals(List.of("301:4800:5000", "302:4700:5000"), alerts);
+	}
+
+	@Test
+	public void testZeroThresholdIsOff()
+	{
+		yAlerts.setThreshold(0);
+		see(301, 5200);
+		see(301, 100);
+		assertEquals(List.of(), alerts);
+	}
+
+	@Test
+	public void testWorldsAlreadyBelowNewThresholdDontAlert()
+	{
+		see(301, 5200);
+		see(302, 5400);
+		yAlerts.setThreshold(5300);
+		see(301, 5100);
+		see(302, 5100);
+		assertEquals(List.of("302:5100:5300"), alerts);
+
+		see(301, 5350);
+		see(301, 5100);
+		assertEquals(List.of("302:5100:5300", "301:5100:5300"), alerts);
+	}
+
+	@Test
+	public void testStaleWorldIsForgotten()
+	{
+		see(301, 5200);
+		store.retain(new BitSet());
+		yAlerts.update(301);
+		store.restore(new InstanceInfo(301,
+			new InstanceInfo.Coord(START / 1000, 4900), new InstanceInfo.Coord(START / 1000, 4900), START / 1000));
+		yAlerts.update(301);
+
+		// Seen afresh, so going below isn't a crossing
+		see(301, 4800);
+		assertEquals(List.of(), alerts);
+	}
+}